@@ -0,0 +1,87 @@
+package com.chess.game;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ChessEngineBenchmark {
+
+    // Ruy Lopez, 16 plies, including castling
+    static final String[] OPENING = {
+        "e2e4", "e7e5", "g1f3", "b8c6", "f1b5", "a7a6", "b5a4", "g8f6",
+        "e1g1", "f8e7", "f1e1", "b7b5", "a4b3", "d7d6", "c2c3", "e8g8"
+    };
+    static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+    static final String MATED = "rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3";
+    static final String STALEMATE = "7k/5Q2/6K1/8/8/8/8/8 b - - 0 1";
+
+    private Move[] opening;
+    private ChessEngine kiwipete;
+    private ChessEngine mated;
+    private ChessEngine stalemate;
+    private int[] moves;
+    private int moveCount;
+
+    @Setup
+    public void setUp() {
+        opening = new Move[OPENING.length];
+        for (int i = 0; i < OPENING.length; i++) {
+            opening[i] = new Move(OPENING[i].substring(0, 2), OPENING[i].substring(2, 4));
+        }
+        kiwipete = new ChessEngine(KIWIPETE);
+        mated = new ChessEngine(MATED);
+        stalemate = new ChessEngine(STALEMATE);
+        moves = new int[MoveGenerator.MAX_MOVES];
+        moveCount = kiwipete.generateLegalMoves(moves);
+    }
+
+    // Validated game-level moves, as Game.makeMove plays them, including the game-over check
+    @Benchmark
+    @OperationsPerInvocation(16)
+    public boolean makeMoveOpeningLine() {
+        ChessEngine engine = new ChessEngine();
+        boolean ok = true;
+        for (Move move : opening) {
+            ok &= engine.makeMove(move);
+        }
+        return ok;
+    }
+
+    // Raw make/unmake of every legal move in a busy middlegame
+    @Benchmark
+    public void makeUnmakeKiwipete() {
+        for (int i = 0; i < moveCount; i++) {
+            kiwipete.makeMove(moves[i]);
+            kiwipete.unmakeMove();
+        }
+    }
+
+    @Benchmark
+    public int generateLegalMovesKiwipete() {
+        return kiwipete.generateLegalMoves(moves);
+    }
+
+    @Benchmark
+    public boolean checkmateDetectionMated() {
+        return mated.isCheckmate();
+    }
+
+    @Benchmark
+    public boolean stalemateDetectionStalemate() {
+        return stalemate.isStalemate();
+    }
+
+    // The common case after every move: not mate, not stalemate, so the full scan must run
+    @Benchmark
+    public void gameOverScanMiddlegame(Blackhole bh) {
+        bh.consume(kiwipete.isCheckmate());
+        bh.consume(kiwipete.isStalemate());
+    }
+}
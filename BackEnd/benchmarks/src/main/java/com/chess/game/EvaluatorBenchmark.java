@@ -0,0 +1,52 @@
+package com.chess.game;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Static evaluation throughput in evals per second, as the search calls it at every leaf and
+// quiescence node: once on a fixed position, and after each of the 48 legal moves in Kiwipete.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EvaluatorBenchmark {
+
+    private ChessEngine kiwipete;
+    private int[] moves;
+    private int moveCount;
+    private PawnHashTable pawnTable;
+
+    @Setup
+    public void setUp() {
+        kiwipete = new ChessEngine(ChessEngineBenchmark.KIWIPETE);
+        moves = new int[MoveGenerator.MAX_MOVES];
+        moveCount = kiwipete.generateLegalMoves(moves);
+        pawnTable = new PawnHashTable(1 << 14);
+    }
+
+    @Benchmark
+    public int evaluateKiwipete() {
+        return Evaluator.evaluate(kiwipete);
+    }
+
+    @Benchmark
+    public int evaluateKiwipetePawnHash() {
+        return Evaluator.evaluate(kiwipete, pawnTable);
+    }
+
+    // Make, evaluate, unmake for every legal move; the moves only change the pawn key when a pawn moves
+    @Benchmark
+    @OperationsPerInvocation(48)
+    public int makeEvaluateUnmakeKiwipete() {
+        int sum = 0;
+        for (int i = 0; i < moveCount; i++) {
+            kiwipete.makeMove(moves[i]);
+            sum += Evaluator.evaluate(kiwipete, pawnTable);
+            kiwipete.unmakeMove();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,41 @@
+package com.chess.game;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameBenchmark {
+
+    private Game game;
+    private Move move;
+
+    @Setup
+    public void setUp() {
+        NullSession white = new NullSession("white");
+        NullSession black = new NullSession("black");
+        game = new Game(white, black, "bench", null, null);
+        for (int i = 0; i < ChessEngineBenchmark.OPENING.length; i++) {
+            String uci = ChessEngineBenchmark.OPENING[i];
+            game.makeMove(i % 2 == 0 ? white : black, new Move(uci.substring(0, 2), uci.substring(2, 4)));
+        }
+        move = new Move("h2", "h3");
+    }
+
+    @Benchmark
+    public String getCurrentFEN() {
+        return game.getCurrentFEN();
+    }
+
+    // The MOVE frame each player receives after every move
+    @Benchmark
+    public String moveMessageSerialization() throws JsonProcessingException {
+        return game.moveMessage(move, true);
+    }
+}
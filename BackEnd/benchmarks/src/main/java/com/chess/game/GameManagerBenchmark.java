@@ -0,0 +1,72 @@
+package com.chess.game;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameManagerBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int liveGames;
+
+    private GameManager gameManager;
+    private NullSession firstPlayer;
+    private NullSession lastPlayer;
+    private NullSession spectator;
+    private final List<NullSession> players = new ArrayList<>();
+
+    // Games are rebuilt each iteration: every Game runs its own clock thread, and a clock left running
+    // would end its game after 60 s in the middle of a later measurement
+    @Setup(Level.Iteration)
+    public void setUp() {
+        gameManager = new GameManager();
+        String initGame = "{\"type\":\"" + Messages.INIT_GAME + "\"}";
+        for (int i = 0; i < liveGames; i++) {
+            NullSession white = new NullSession("w" + i);
+            NullSession black = new NullSession("b" + i);
+            gameManager.handleMessage(white, initGame);
+            gameManager.handleMessage(black, initGame);
+            players.add(white);
+            players.add(black);
+            if (i == 0) firstPlayer = white;
+            lastPlayer = black;
+        }
+        spectator = new NullSession("nobody");
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        for (NullSession player : players) {
+            Game game = gameManager.findGameBySession(player);
+            if (game != null) {
+                game.stopTimer();
+            }
+            gameManager.removeUser(player);
+        }
+        players.clear();
+    }
+
+    @Benchmark
+    public Game findGameBySessionFirst() {
+        return gameManager.findGameBySession(firstPlayer);
+    }
+
+    @Benchmark
+    public Game findGameBySessionLast() {
+        return gameManager.findGameBySession(lastPlayer);
+    }
+
+    // Every message from a session that is not in a game pays for a full miss
+    @Benchmark
+    public Game findGameBySessionMiss() {
+        return gameManager.findGameBySession(spectator);
+    }
+}
@@ -0,0 +1,43 @@
+package com.chess.game;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Neural evaluation with scalar and Vector API kernels on a 256-unit network with random weights:
+// make (accumulator update), evaluate (output layer), unmake, per legal move of Kiwipete.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class NnueBenchmark {
+
+    @Param({"false", "true"})
+    public boolean simd;
+
+    private ChessEngine kiwipete;
+    private int[] moves;
+    private int moveCount;
+
+    @Setup
+    public void setUp() {
+        kiwipete = new ChessEngine(ChessEngineBenchmark.KIWIPETE);
+        kiwipete.setNnue(NnueNetwork.random(256, 15, simd));
+        moves = new int[MoveGenerator.MAX_MOVES];
+        moveCount = kiwipete.generateLegalMoves(moves);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(48)
+    public int makeEvaluateUnmakeKiwipete() {
+        int sum = 0;
+        for (int i = 0; i < moveCount; i++) {
+            kiwipete.makeMove(moves[i]);
+            sum += Evaluator.evaluate(kiwipete);
+            kiwipete.unmakeMove();
+        }
+        return sum;
+    }
+}
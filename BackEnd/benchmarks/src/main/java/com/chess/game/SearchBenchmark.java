@@ -0,0 +1,56 @@
+package com.chess.game;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Lazy SMP scaling: every invocation is a fixed-time search of the middlegame position, and the
+// "nodes" counter is reported as nodes per second summed over all threads. Divide by the thread
+// count for NPS per thread; on a machine with fewer cores than threads the helpers only share time.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private ExecutorService executor;
+    private LazySmpSearch search;
+    private ChessEngine position;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Nodes {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            nodes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(Math.max(1, threads - 1));
+        search = new LazySmpSearch(new TranspositionTable(64), executor, threads);
+        position = new ChessEngine(ChessEngineBenchmark.KIWIPETE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public int fixedTimeSearchKiwipete(Nodes counter) {
+        LazySmpSearch.Result result = search.search(position, Search.MAX_PLY, 100, 0);
+        counter.nodes += result.getResult().getNodes();
+        return result.getResult().getBestMove();
+    }
+}
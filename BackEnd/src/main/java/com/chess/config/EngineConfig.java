@@ -0,0 +1,123 @@
+package com.chess.config;
+
+import com.chess.game.LazySmpSearch;
+import com.chess.game.NnueNetwork;
+import com.chess.game.PolyglotBook;
+import com.chess.game.SyzygyTablebase;
+import com.chess.game.TranspositionTable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class EngineConfig {
+
+    @Value("${engine.hash.mb:64}")
+    private int hashMegabytes;
+
+    // Threads per search, the calling thread included
+    @Value("${engine.threads:1}")
+    private int searchThreads;
+
+    // Helper threads shared by all searches, so engine work stays bounded next to WebSocket handling
+    @Value("${engine.search.pool:4}")
+    private int searchPoolSize;
+
+    // Polyglot .bin book; empty disables the book
+    @Value("${engine.book.path:}")
+    private String bookPath;
+
+    // Neural evaluation for the in-process search: off unless enabled with a (768 -> N)x2 -> 1 network file.
+    // SIMD kernels need a -Pvector-api build and the JVM started with --add-modules jdk.incubator.vector,
+    // otherwise the scalar ones run.
+    @Value("${engine.nnue.enabled:false}")
+    private boolean nnueEnabled;
+
+    @Value("${engine.nnue.path:}")
+    private String nnuePath;
+
+    @Value("${engine.nnue.simd:true}")
+    private boolean nnueSimd;
+
+    // Directories holding Syzygy .rtbw/.rtbz files, separated like a classpath; empty disables tablebases
+    @Value("${engine.syzygy.path:}")
+    private String syzygyPath;
+
+    // One off-heap table shared by every in-process search thread
+    @Bean
+    public TranspositionTable transpositionTable() {
+        TranspositionTable table = new TranspositionTable(hashMegabytes);
+        System.out.println("Transposition table: " + table.getSizeMegabytes() + " MB, " + table.getSlotCount() + " entries");
+        return table;
+    }
+
+    // No queue: a helper either starts on an idle thread right away or the search runs without it
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService searchExecutor() {
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(0, Math.max(1, searchPoolSize), 60, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "search-helper-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Bean
+    public LazySmpSearch lazySmpSearch() {
+        System.out.println("In-process search: " + searchThreads + " thread(s), " + searchPoolSize + " shared helpers");
+        return new LazySmpSearch(transpositionTable(), searchExecutor(), searchThreads, loadNetwork());
+    }
+
+    // Null when disabled or unreadable, which leaves the hand-written evaluation in place
+    private NnueNetwork loadNetwork() {
+        if (!nnueEnabled) return null;
+        if (nnuePath.isBlank()) {
+            System.err.println("engine.nnue.enabled is set but engine.nnue.path is empty; using the classical evaluation");
+            return null;
+        }
+        try {
+            NnueNetwork network = NnueNetwork.load(Path.of(nnuePath), nnueSimd);
+            System.out.println("NNUE evaluation: " + nnuePath + ", " + network.getHiddenSize() + " hidden units, "
+                    + (network.isSimd() ? "Vector API" : "scalar") + " kernels");
+            return network;
+        } catch (Exception e) {
+            System.err.println("Could not load NNUE network " + nnuePath + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Bean
+    public PolyglotBook openingBook() {
+        if (bookPath.isBlank()) {
+            System.out.println("Opening book disabled (engine.book.path not set)");
+            return PolyglotBook.empty();
+        }
+        try {
+            PolyglotBook book = PolyglotBook.open(Path.of(bookPath));
+            System.out.println("Opening book: " + bookPath + ", " + book.getEntryCount() + " entries");
+            return book;
+        } catch (Exception e) {
+            System.err.println("Could not open opening book " + bookPath + ": " + e.getMessage());
+            return PolyglotBook.empty();
+        }
+    }
+
+    // Files are only mapped when a position first needs them; the mappings are shared by every game
+    @Bean
+    public SyzygyTablebase syzygyTablebase() {
+        SyzygyTablebase tablebase = new SyzygyTablebase(syzygyPath);
+        if (tablebase.getTableCount() == 0) {
+            System.out.println("Syzygy tablebases disabled (engine.syzygy.path not set or empty)");
+        } else {
+            System.out.println("Syzygy tablebases: " + tablebase.getTableCount() + " files, up to " + tablebase.getMaxPieces() + " pieces");
+        }
+        return tablebase;
+    }
+}
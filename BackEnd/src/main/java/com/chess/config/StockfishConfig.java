@@ -1,5 +1,9 @@
 package com.chess.config;
 
+import com.chess.service.AnalysisCache;
+import com.chess.service.DepthPolicy;
+import com.chess.service.EngineScheduler;
+import com.chess.service.UciEnginePool;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -12,6 +16,52 @@ public class StockfishConfig {
     @Value("${stockfish.path:C:\\stockfish\\stockfish-windows-x86-64-avx2.exe}")
     private String stockfishPath;
 
+    // Long-lived Stockfish processes shared by all games; each one is a full engine, so keep this near the core count
+    @Value("${stockfish.pool.size:2}")
+    private int poolSize;
+
+    // How long a request waits for a free engine before falling back
+    @Value("${stockfish.pool.borrow-timeout:5000}")
+    private long borrowTimeoutMillis;
+
+    // Handshake and isready health check limit; an engine slower than this is restarted
+    @Value("${stockfish.pool.ready-timeout:2000}")
+    private long readyTimeoutMillis;
+
+    // Engine tasks waiting for a worker, per priority class; beyond this new requests of that class are
+    // rejected rather than queued. Post-game analysis keeps only a few positions per game queued at once.
+    @Value("${stockfish.analysis.queue:512}")
+    private int analysisQueueSize;
+
+    // Longest each priority class may wait in the queue before it is dropped (ms)
+    @Value("${stockfish.deadline.hint:10000}")
+    private long hintDeadlineMillis;
+
+    @Value("${stockfish.deadline.live:30000}")
+    private long liveDeadlineMillis;
+
+    @Value("${stockfish.deadline.background:600000}")
+    private long backgroundDeadlineMillis;
+
+    // Load-adaptive limits: one ply less per step of average queue wait (ms), never below the minimum depth;
+    // at the minimum a node limit (0 = none) bounds each search as well
+    @Value("${stockfish.adaptive.min-depth:8}")
+    private int adaptiveMinDepth;
+
+    @Value("${stockfish.adaptive.step:500}")
+    private long adaptiveStepMillis;
+
+    @Value("${stockfish.adaptive.nodes:0}")
+    private long adaptiveNodes;
+
+    // While nothing of a class is queued its average wait halves every half-life (ms), so depth recovers when idle
+    @Value("${stockfish.adaptive.half-life:2000}")
+    private long adaptiveHalfLifeMillis;
+
+    // Searched positions kept for hints and move classification, least recently used evicted first
+    @Value("${stockfish.cache.size:10000}")
+    private int cacheSize;
+
     @Bean
     public boolean validateStockfishInstallation() {
         File stockfishFile = new File(stockfishPath);
@@ -27,4 +77,31 @@ public class StockfishConfig {
         
         return exists;
     }
-}
\ No newline at end of file
+
+    // Processes are started on first use, so a missing Stockfish costs nothing until a hint needs it
+    @Bean(destroyMethod = "close")
+    public UciEnginePool uciEnginePool() {
+        System.out.println("Stockfish pool: up to " + poolSize + " processes");
+        return new UciEnginePool(stockfishPath, poolSize, borrowTimeoutMillis, readyTimeoutMillis);
+    }
+
+    // One worker per pooled engine: more would only wait on the pool, fewer would leave engines idle
+    @Bean(destroyMethod = "close")
+    public EngineScheduler engineScheduler() {
+        System.out.println("Engine scheduler: " + poolSize + " workers, queue " + analysisQueueSize + " per class"
+                + ", deadlines " + hintDeadlineMillis + "/" + liveDeadlineMillis + "/" + backgroundDeadlineMillis + " ms");
+        return new EngineScheduler(poolSize, analysisQueueSize, hintDeadlineMillis, liveDeadlineMillis, backgroundDeadlineMillis,
+                adaptiveHalfLifeMillis);
+    }
+
+    @Bean
+    public DepthPolicy depthPolicy() {
+        return new DepthPolicy(adaptiveMinDepth, adaptiveStepMillis, adaptiveNodes);
+    }
+
+    @Bean
+    public AnalysisCache analysisCache() {
+        System.out.println("Analysis cache: up to " + cacheSize + " positions");
+        return new AnalysisCache(cacheSize);
+    }
+}
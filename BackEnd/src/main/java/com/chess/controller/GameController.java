@@ -5,6 +5,7 @@ import com.chess.model.GameRequestEntity;
 import com.chess.model.User;
 import com.chess.repository.GameRequestRepository;
 import com.chess.repository.UserRepository;
+import com.chess.service.ChessEngineService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -23,6 +24,20 @@ public class GameController {
     @Autowired
     private GameRequestRepository gameRequestRepository;
 
+    @Autowired
+    private ChessEngineService chessEngineService;
+
+    // Stockfish pool usage and borrow wait times, how often the analysis cache or an identical running
+    // search saved a search, and the scheduler's queues and preemptions
+    @GetMapping("/engine/stats")
+    public ResponseEntity<?> engineStats() {
+        return ResponseEntity.ok(Map.of(
+                "pool", chessEngineService.getEnginePoolStats(),
+                "cache", chessEngineService.getAnalysisCacheStats(),
+                "coalesced", chessEngineService.getCoalescedSearches(),
+                "scheduler", chessEngineService.getSchedulerStats()));
+    }
+
     @PostMapping("/sendfriendrequest")
     public ResponseEntity<?> sendFriendRequest(@RequestBody FriendRequestDto request) {
         try {
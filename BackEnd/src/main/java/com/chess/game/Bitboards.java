@@ -0,0 +1,232 @@
+package com.chess.game;
+
+// Square a1 = 0, b1 = 1 ... h8 = 63. Bit n of a bitboard is set when square n is occupied.
+public final class Bitboards {
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_B = FILE_A << 1;
+    public static final long FILE_G = FILE_A << 6;
+    public static final long FILE_H = FILE_A << 7;
+    public static final long RANK_1 = 0xFFL;
+    public static final long RANK_2 = RANK_1 << 8;
+    public static final long RANK_7 = RANK_1 << 48;
+    public static final long RANK_8 = RANK_1 << 56;
+
+    private static final String[] SQUARE_NAMES = new String[64];
+
+    // Precomputed leaper attacks
+    private static final long[] KNIGHT_ATTACKS = new long[64];
+    private static final long[] KING_ATTACKS = new long[64];
+    private static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    // BETWEEN[a * 64 + b]: squares strictly between a and b; LINE[a * 64 + b]: the whole line through both
+    private static final long[] BETWEEN = new long[64 * 64];
+    private static final long[] LINE = new long[64 * 64];
+
+    // Fancy magic bitboards for sliders: attacks = TABLE[offset + ((occ & mask) * magic) >>> shift].
+    // The magics were found by a fixed-seed random search and are collision-free for every square.
+    private static final long[] ROOK_MAGICS = {
+        0x2080002080400010L, 0x00C0002001401000L, 0x2100110008402002L, 0x0880080081041000L,
+        0x0200020020041008L, 0x2300040008010012L, 0x0C00283004008201L, 0x0180010000407A80L,
+        0x0168800080400020L, 0x0010400040201000L, 0x1001002001001048L, 0x1001002408100100L,
+        0x0801000408010012L, 0x4001000209000400L, 0x08A20004C8020001L, 0x2002801145002280L,
+        0x0080860021004200L, 0x001000C009402002L, 0x00B0002004002800L, 0x100A808010020800L,
+        0x8101010008000410L, 0x0244008002000480L, 0x0000040010810208L, 0x2000020000448534L,
+        0x4104400480008033L, 0x0000810100204000L, 0x0440430900200010L, 0x4600240900100100L,
+        0x0060080080040080L, 0x0001000300080400L, 0x0004084400011002L, 0x0023040200008041L,
+        0x0580050043002080L, 0x0400804002802008L, 0x0001002001004010L, 0x1000200901001000L,
+        0x4410800801800C00L, 0xA012003806001004L, 0x0020100104008802L, 0x0004808402000041L,
+        0x0010400170898000L, 0x0080500020004004L, 0x1040408012020020L, 0x8010040008004040L,
+        0x2001080100110004L, 0x0000020004008080L, 0x0021010810040002L, 0x0800008C43020024L,
+        0x0000800021005100L, 0x0070201040008080L, 0x0000D04282006A00L, 0x0010014400080240L,
+        0x0001080110050100L, 0x0012000810240600L, 0x0402000801040200L, 0x028100108A004100L,
+        0x0050800300102045L, 0x8208210040120882L, 0x8010600101183441L, 0x020B000910006045L,
+        0x0241001002480005L, 0x0081000400880241L, 0x0000009008024124L, 0x0048122980410402L
+    };
+    private static final long[] BISHOP_MAGICS = {
+        0x0020425028410042L, 0x2060013202004100L, 0x129004108020C000L, 0x0048208020100480L,
+        0x0504042000601140L, 0x0206089208000001L, 0x0020410808402482L, 0x1101041482011001L,
+        0x0000A08810210040L, 0x2028E00C04107141L, 0x1202040820810208L, 0x4022482088200001L,
+        0x04080C1420E80464L, 0x80108C9004A00014L, 0x0012050801900800L, 0x0410C42201242000L,
+        0x000A024008082080L, 0x008210D010020880L, 0x0890000101002100L, 0x1108000C82004000L,
+        0x4001008820080000L, 0x090100A808980400L, 0x2004004900880466L, 0x1902000C4900C800L,
+        0x0482420010900200L, 0x0408200002420208L, 0x00A0880910164090L, 0x0084080000202040L,
+        0x8284040000410040L, 0x800082000B013080L, 0x4402008002181140L, 0x4200420440410400L,
+        0x1001209070200406L, 0x645404C410023000L, 0x0000414040180211L, 0x2004020080080080L,
+        0x4004064200040108L, 0x2080A10100021000L, 0x0009480080010C01L, 0x5008020084004044L,
+        0x020A096008082160L, 0x6822009220202820L, 0x000D222208014044L, 0x0418004200800802L,
+        0x0400120202020410L, 0x0C02542802000521L, 0x722108088D004082L, 0x4842009400800101L,
+        0x0014008208202880L, 0x00A20100C2100002L, 0x6500C10080900200L, 0x0000100042088008L,
+        0x1B4081401041080CL, 0x0082450890310040L, 0x8010A04811085000L, 0x0094102A20510004L,
+        0x1000110101504000L, 0x0018004400880802L, 0x04001221A4022202L, 0x0808010800420202L,
+        0x0082000040450100L, 0x00004C0810814209L, 0x1200206001410100L, 0x0220010102140048L
+    };
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final int[] ROOK_OFFSETS = new int[64];
+    private static final long[] ROOK_TABLE = new long[102400];
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final int[] BISHOP_OFFSETS = new int[64];
+    private static final long[] BISHOP_TABLE = new long[5248];
+
+    static {
+        for (int sq = 0; sq < 64; sq++) {
+            SQUARE_NAMES[sq] = "" + (char) ('a' + file(sq)) + (char) ('1' + rank(sq));
+            KNIGHT_ATTACKS[sq] = computeKnightAttacks(sq);
+            KING_ATTACKS[sq] = computeKingAttacks(sq);
+            PAWN_ATTACKS[Piece.WHITE][sq] = computePawnAttacks(Piece.WHITE, sq);
+            PAWN_ATTACKS[Piece.BLACK][sq] = computePawnAttacks(Piece.BLACK, sq);
+        }
+        initMagics(true, ROOK_MAGICS, ROOK_MASKS, ROOK_SHIFTS, ROOK_OFFSETS, ROOK_TABLE);
+        initMagics(false, BISHOP_MAGICS, BISHOP_MASKS, BISHOP_SHIFTS, BISHOP_OFFSETS, BISHOP_TABLE);
+        for (int a = 0; a < 64; a++) {
+            for (int b = 0; b < 64; b++) {
+                if (a == b) continue;
+                if ((rookAttacks(a, 0L) & bit(b)) != 0) {
+                    BETWEEN[a * 64 + b] = rookAttacks(a, bit(b)) & rookAttacks(b, bit(a));
+                    LINE[a * 64 + b] = (rookAttacks(a, 0L) & rookAttacks(b, 0L)) | bit(a) | bit(b);
+                } else if ((bishopAttacks(a, 0L) & bit(b)) != 0) {
+                    BETWEEN[a * 64 + b] = bishopAttacks(a, bit(b)) & bishopAttacks(b, bit(a));
+                    LINE[a * 64 + b] = (bishopAttacks(a, 0L) & bishopAttacks(b, 0L)) | bit(a) | bit(b);
+                }
+            }
+        }
+    }
+
+    private Bitboards() {}
+
+    public static long bit(int sq) {
+        return 1L << sq;
+    }
+
+    public static int file(int sq) {
+        return sq & 7;
+    }
+
+    public static int rank(int sq) {
+        return sq >>> 3;
+    }
+
+    // "e4" -> 28, or -1 when the string is not a square
+    public static int square(String algebraic) {
+        if (algebraic == null || algebraic.length() != 2) return -1;
+
+        char file = algebraic.charAt(0);
+        char rank = algebraic.charAt(1);
+
+        if (file < 'a' || file > 'h' || rank < '1' || rank > '8') return -1;
+
+        return (rank - '1') * 8 + (file - 'a');
+    }
+
+    public static String squareName(int sq) {
+        return SQUARE_NAMES[sq];
+    }
+
+    public static long knightAttacks(int sq) {
+        return KNIGHT_ATTACKS[sq];
+    }
+
+    public static long kingAttacks(int sq) {
+        return KING_ATTACKS[sq];
+    }
+
+    // Squares a pawn of the given color standing on sq attacks
+    public static long pawnAttacks(int color, int sq) {
+        return PAWN_ATTACKS[color][sq];
+    }
+
+    public static long rookAttacks(int sq, long occupied) {
+        return ROOK_TABLE[ROOK_OFFSETS[sq] + (int) (((occupied & ROOK_MASKS[sq]) * ROOK_MAGICS[sq]) >>> ROOK_SHIFTS[sq])];
+    }
+
+    public static long bishopAttacks(int sq, long occupied) {
+        return BISHOP_TABLE[BISHOP_OFFSETS[sq] + (int) (((occupied & BISHOP_MASKS[sq]) * BISHOP_MAGICS[sq]) >>> BISHOP_SHIFTS[sq])];
+    }
+
+    public static long queenAttacks(int sq, long occupied) {
+        return rookAttacks(sq, occupied) | bishopAttacks(sq, occupied);
+    }
+
+    // Squares strictly between two squares on a shared rank, file or diagonal; 0 otherwise
+    public static long between(int from, int to) {
+        return BETWEEN[from * 64 + to];
+    }
+
+    // Full rank, file or diagonal through both squares (edge to edge); 0 when not aligned
+    public static long line(int a, int b) {
+        return LINE[a * 64 + b];
+    }
+
+    private static long computeKnightAttacks(int sq) {
+        long b = bit(sq);
+        return ((b << 17) & ~FILE_A) | ((b << 15) & ~FILE_H)
+             | ((b << 10) & ~(FILE_A | FILE_B)) | ((b << 6) & ~(FILE_G | FILE_H))
+             | ((b >>> 17) & ~FILE_H) | ((b >>> 15) & ~FILE_A)
+             | ((b >>> 10) & ~(FILE_G | FILE_H)) | ((b >>> 6) & ~(FILE_A | FILE_B));
+    }
+
+    private static long computeKingAttacks(int sq) {
+        long b = bit(sq);
+        long sides = ((b << 1) & ~FILE_A) | ((b >>> 1) & ~FILE_H);
+        long row = b | sides;
+        return sides | (row << 8) | (row >>> 8);
+    }
+
+    private static long computePawnAttacks(int color, int sq) {
+        long b = bit(sq);
+        if (color == Piece.WHITE) {
+            return ((b << 9) & ~FILE_A) | ((b << 7) & ~FILE_H);
+        }
+        return ((b >>> 7) & ~FILE_A) | ((b >>> 9) & ~FILE_H);
+    }
+
+    // Slow ray walk, only used to fill the magic tables
+    private static long slidingAttacks(boolean rook, int sq, long occupied) {
+        if (rook) {
+            return ray(sq, occupied, 1, 0) | ray(sq, occupied, -1, 0)
+                 | ray(sq, occupied, 0, 1) | ray(sq, occupied, 0, -1);
+        }
+        return ray(sq, occupied, 1, 1) | ray(sq, occupied, 1, -1)
+             | ray(sq, occupied, -1, 1) | ray(sq, occupied, -1, -1);
+    }
+
+    private static long ray(int sq, long occupied, int rankStep, int fileStep) {
+        long attacks = 0L;
+        int r = rank(sq) + rankStep;
+        int f = file(sq) + fileStep;
+        while (r >= 0 && r < 8 && f >= 0 && f < 8) {
+            long b = bit(r * 8 + f);
+            attacks |= b;
+            if ((occupied & b) != 0) break;
+            r += rankStep;
+            f += fileStep;
+        }
+        return attacks;
+    }
+
+    // Fills one slider's attack table by enumerating every blocker subset of each square's mask
+    private static void initMagics(boolean rook, long[] magics, long[] masks, int[] shifts, int[] offsets, long[] table) {
+        int offset = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            long edges = ((RANK_1 | RANK_8) & ~(RANK_1 << (8 * rank(sq))))
+                       | ((FILE_A | FILE_H) & ~(FILE_A << file(sq)));
+            long mask = slidingAttacks(rook, sq, 0L) & ~edges;
+            int bits = Long.bitCount(mask);
+
+            masks[sq] = mask;
+            shifts[sq] = 64 - bits;
+            offsets[sq] = offset;
+
+            // Carry-Rippler enumeration of every subset of the mask
+            long subset = 0L;
+            do {
+                int index = (int) ((subset * magics[sq]) >>> shifts[sq]);
+                table[offset + index] = slidingAttacks(rook, sq, subset);
+                subset = (subset - mask) & mask;
+            } while (subset != 0);
+
+            offset += 1 << bits;
+        }
+    }
+}
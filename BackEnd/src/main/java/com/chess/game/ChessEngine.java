@@ -2,73 +2,228 @@ package com.chess.game;
 
 import java.util.*;
 
+import static com.chess.game.Piece.*;
+
 public class ChessEngine {
-    private String[][] board;
-    private String currentPlayer;
+    public static final String STARTING_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    // Castling rights bits
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+
+    // Rights that survive a move touching the square (rook or king leaving/being captured)
+    private static final int[] CASTLING_MASK = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_MASK, 15);
+        CASTLING_MASK[0] &= ~WHITE_QUEENSIDE;
+        CASTLING_MASK[7] &= ~WHITE_KINGSIDE;
+        CASTLING_MASK[4] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLING_MASK[56] &= ~BLACK_QUEENSIDE;
+        CASTLING_MASK[63] &= ~BLACK_KINGSIDE;
+        CASTLING_MASK[60] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+    }
+
+    // Bitboard core: one bitboard per piece type (both colors), one per color, plus a mailbox
+    // so "what is on this square" is a single array read.
+    private final long[] pieces = new long[6];
+    private final long[] colors = new long[2];
+    private final byte[] mailbox = new byte[64];
+    private int sideToMove;
+    private int castlingRights;
+    private int epSquare = -1;
+    private int halfmoveClock;
+    private int fullmoveNumber = 1;
+    private long zobristKey;
+    // Kept in step with every piece placed or removed: Zobrist key of the pawns alone, material plus
+    // piece-square score (positive for White) and game phase, so evaluation never rescans the board
+    private long pawnKey;
+    private int pieceSquareScore;
+    private int phase;
+    // Present only while a search evaluates this position with the neural network
+    private NnueAccumulator nnue;
     private boolean gameOver;
     private String winner;
-    private List<String> moveHistory;
+
+    // Reused by move validation and game-over detection so they never allocate
+    private final int[] moveBuffer = new int[MoveGenerator.MAX_MOVES];
+
+    // Undo stack, one packed entry per ply: move (bits 0-15), captured piece + 1 (16-19),
+    // castling rights (20-23), en passant square + 1 (24-30), halfmove clock (32-47).
+    // Grows by doubling, so a game only ever allocates when it outlives the preallocated plies.
+    private long[] undoStack = new long[256];
+    private int undoCount;
+    // Zobrist key of the position before each ply, parallel to undoStack; doubles as the repetition history
+    private long[] keyHistory = new long[256];
+    // FEN the game started from, and the current position's FEN built on first request after each ply
+    private String startingFen;
+    private String fen;
 
     public ChessEngine() {
-        initializeBoard();
-        this.currentPlayer = "w";
+        this(STARTING_FEN);
+    }
+
+    // Sets up an arbitrary position; throws IllegalArgumentException for malformed FEN
+    public ChessEngine(String fen) {
+        loadFen(fen);
         this.gameOver = false;
         this.winner = null;
-        this.moveHistory = new ArrayList<>();
     }
 
-    private void initializeBoard() {
-        board = new String[8][8];
-        
-        // Initialize empty squares
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                board[i][j] = null;
-            }
+    // Independent copy including the move history, so repetitions are still seen when searching the copy
+    public ChessEngine(ChessEngine other) {
+        System.arraycopy(other.pieces, 0, pieces, 0, pieces.length);
+        System.arraycopy(other.colors, 0, colors, 0, colors.length);
+        System.arraycopy(other.mailbox, 0, mailbox, 0, mailbox.length);
+        this.sideToMove = other.sideToMove;
+        this.castlingRights = other.castlingRights;
+        this.epSquare = other.epSquare;
+        this.halfmoveClock = other.halfmoveClock;
+        this.fullmoveNumber = other.fullmoveNumber;
+        this.zobristKey = other.zobristKey;
+        this.pawnKey = other.pawnKey;
+        this.pieceSquareScore = other.pieceSquareScore;
+        this.phase = other.phase;
+        this.nnue = other.nnue == null ? null : other.nnue.copy();
+        this.gameOver = other.gameOver;
+        this.winner = other.winner;
+        this.undoStack = other.undoStack.clone();
+        this.undoCount = other.undoCount;
+        this.keyHistory = other.keyHistory.clone();
+        this.startingFen = other.startingFen;
+        this.fen = other.fen;
+    }
+
+    private void loadFen(String fen) {
+        String[] fields = splitFields(fen);
+        if (fields.length < 4) {
+            throw new IllegalArgumentException("Invalid FEN: " + fen);
         }
 
-        // Set up initial pieces
-        // Black pieces
-        board[0][0] = "br"; board[0][1] = "bn"; board[0][2] = "bb"; board[0][3] = "bq";
-        board[0][4] = "bk"; board[0][5] = "bb"; board[0][6] = "bn"; board[0][7] = "br";
-        for (int i = 0; i < 8; i++) {
-            board[1][i] = "bp";
+        Arrays.fill(mailbox, (byte) EMPTY);
+
+        // Piece placement, rank 8 first
+        int rank = 7;
+        int file = 0;
+        for (int i = 0; i < fields[0].length(); i++) {
+            char c = fields[0].charAt(i);
+            if (c == '/') {
+                if (file != 8) throw new IllegalArgumentException("Invalid FEN rank: " + fen);
+                rank--;
+                file = 0;
+            } else if (c >= '1' && c <= '8') {
+                file += c - '0';
+            } else {
+                int type = Piece.typeOf(c);
+                if (type < 0 || file > 7 || rank < 0) throw new IllegalArgumentException("Invalid FEN piece: " + fen);
+                putPiece(rank * 8 + file, Piece.make(Character.isUpperCase(c) ? WHITE : BLACK, type));
+                file++;
+            }
+        }
+        if (rank != 0 || file != 8
+                || Long.bitCount(pieces[KING] & colors[WHITE]) != 1
+                || Long.bitCount(pieces[KING] & colors[BLACK]) != 1) {
+            throw new IllegalArgumentException("Invalid FEN placement: " + fen);
         }
 
-        // White pieces
-        for (int i = 0; i < 8; i++) {
-            board[6][i] = "wp";
+        // Side to move
+        if (fields[1].equals("w")) {
+            sideToMove = WHITE;
+        } else if (fields[1].equals("b")) {
+            sideToMove = BLACK;
+            zobristKey ^= Zobrist.SIDE_TO_MOVE;
+        } else {
+            throw new IllegalArgumentException("Invalid FEN side to move: " + fen);
         }
-        board[7][0] = "wr"; board[7][1] = "wn"; board[7][2] = "wb"; board[7][3] = "wq";
-        board[7][4] = "wk"; board[7][5] = "wb"; board[7][6] = "wn"; board[7][7] = "wr";
-    }
 
-    public boolean makeMove(Move move) {
-        if (gameOver) return false;
+        // Castling rights, dropping any the placement contradicts
+        for (int i = 0; i < fields[2].length(); i++) {
+            switch (fields[2].charAt(i)) {
+                case 'K': castlingRights |= WHITE_KINGSIDE; break;
+                case 'Q': castlingRights |= WHITE_QUEENSIDE; break;
+                case 'k': castlingRights |= BLACK_KINGSIDE; break;
+                case 'q': castlingRights |= BLACK_QUEENSIDE; break;
+                case '-': break;
+                default: throw new IllegalArgumentException("Invalid FEN castling: " + fen);
+            }
+        }
+        for (int sq : new int[]{0, 4, 7, 56, 60, 63}) {
+            int expected = sq == 4 || sq == 60 ? KING : ROOK;
+            if (mailbox[sq] != Piece.make(sq < 8 ? WHITE : BLACK, expected)) {
+                castlingRights &= CASTLING_MASK[sq];
+            }
+        }
+        zobristKey ^= Zobrist.castling(castlingRights);
+
+        // En passant, kept only when a pawn can actually capture (same rule as makeMove)
+        if (!fields[3].equals("-")) {
+            int sq = Bitboards.square(fields[3]);
+            if (sq < 0) throw new IllegalArgumentException("Invalid FEN en passant square: " + fen);
+            if ((Bitboards.pawnAttacks(sideToMove ^ 1, sq) & pieces[PAWN] & colors[sideToMove]) != 0) {
+                epSquare = sq;
+                zobristKey ^= Zobrist.enPassant(sq);
+            }
+        }
 
-        int[] fromPos = algebraicToPosition(move.getFrom());
-        int[] toPos = algebraicToPosition(move.getTo());
+        try {
+            halfmoveClock = fields.length > 4 ? Integer.parseInt(fields[4]) : 0;
+            fullmoveNumber = fields.length > 5 ? Math.max(1, Integer.parseInt(fields[5])) : 1;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid FEN move counters: " + fen);
+        }
+        startingFen = fen.trim();
+    }
 
-        if (fromPos == null || toPos == null) return false;
+    // Whitespace-separated FEN fields without going through a regex; at most six are read
+    private static String[] splitFields(String fen) {
+        if (fen == null) return new String[0];
+        String[] fields = new String[6];
+        int count = 0;
+        int i = 0;
+        int length = fen.length();
+        while (count < 6) {
+            while (i < length && Character.isWhitespace(fen.charAt(i))) i++;
+            if (i == length) break;
+            int start = i;
+            while (i < length && !Character.isWhitespace(fen.charAt(i))) i++;
+            fields[count++] = fen.substring(start, i);
+        }
+        return count == 6 ? fields : Arrays.copyOf(fields, count);
+    }
 
-        String piece = board[fromPos[0]][fromPos[1]];
-        if (piece == null || !piece.startsWith(currentPlayer)) return false;
+    private void putPiece(int sq, int piece) {
+        long b = Bitboards.bit(sq);
+        pieces[Piece.type(piece)] |= b;
+        colors[Piece.color(piece)] |= b;
+        mailbox[sq] = (byte) piece;
+        zobristKey ^= Zobrist.piece(piece, sq);
+        if (Piece.type(piece) == PAWN) pawnKey ^= Zobrist.piece(piece, sq);
+        pieceSquareScore += Evaluator.pieceSquare(piece, sq);
+        phase += Evaluator.phaseWeight(piece);
+        if (nnue != null) nnue.add(piece, sq);
+    }
 
-        if (!isValidMove(fromPos, toPos, piece)) return false;
+    private void removePiece(int sq, int piece) {
+        long b = ~Bitboards.bit(sq);
+        pieces[Piece.type(piece)] &= b;
+        colors[Piece.color(piece)] &= b;
+        mailbox[sq] = EMPTY;
+        zobristKey ^= Zobrist.piece(piece, sq);
+        if (Piece.type(piece) == PAWN) pawnKey ^= Zobrist.piece(piece, sq);
+        pieceSquareScore -= Evaluator.pieceSquare(piece, sq);
+        phase -= Evaluator.phaseWeight(piece);
+        if (nnue != null) nnue.remove(piece, sq);
+    }
 
-        // Make the move
-        board[toPos[0]][toPos[1]] = piece;
-        board[fromPos[0]][fromPos[1]] = null;
+    public boolean makeMove(Move move) {
+        if (gameOver) return false;
 
-        // Handle pawn promotion
-        if (move.getPromotion() != null && piece.endsWith("p")) {
-            board[toPos[0]][toPos[1]] = currentPlayer + move.getPromotion();
-        }
+        int legalMove = findLegalMove(move);
+        if (legalMove < 0) return false;
 
-        moveHistory.add(move.getFrom() + move.getTo());
-        
-        // Switch players
-        currentPlayer = currentPlayer.equals("w") ? "b" : "w";
+        makeMove(legalMove);
 
         // Check for game over conditions
         checkGameOver();
@@ -76,193 +231,302 @@ public class ChessEngine {
         return true;
     }
 
-    private boolean isValidMove(int[] from, int[] to, String piece) {
-        // Basic validation - piece exists and belongs to current player
-        if (piece == null || !piece.startsWith(currentPlayer)) {
-            return false;
+    // Matches a from/to/promotion request against the legal moves; -1 when it is not legal
+    private int findLegalMove(Move move) {
+        int from = Bitboards.square(move.getFrom());
+        int to = Bitboards.square(move.getTo());
+        if (from < 0 || to < 0) return -1;
+
+        // Promotion without a piece defaults to a queen
+        int promotionType = move.getPromotion() != null && !move.getPromotion().isEmpty()
+                ? Piece.typeOf(move.getPromotion().charAt(0)) : QUEEN;
+
+        int count = MoveGenerator.generateLegalMoves(this, moveBuffer, 0);
+        for (int i = 0; i < count; i++) {
+            int m = moveBuffer[i];
+            if (PackedMove.from(m) == from && PackedMove.to(m) == to
+                    && (!PackedMove.isPromotion(m) || PackedMove.promotionType(m) == promotionType)) {
+                return m;
+            }
         }
+        return -1;
+    }
 
-        // Check if destination has own piece
-        String destPiece = board[to[0]][to[1]];
-        if (destPiece != null && destPiece.startsWith(currentPlayer)) {
-            return false;
+    // Plays a legal PackedMove and pushes what unmakeMove needs to take it back.
+    // Does no legality or game-over checks, so search and replay can call it in tight loops.
+    public void makeMove(int move) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        int flag = PackedMove.flag(move);
+        int piece = mailbox[from];
+        int captured = flag == PackedMove.EP_CAPTURE ? EMPTY : mailbox[to];
+
+        if (undoCount == undoStack.length) {
+            undoStack = Arrays.copyOf(undoStack, undoCount * 2);
+            keyHistory = Arrays.copyOf(keyHistory, undoCount * 2);
+        }
+        fen = null;
+        keyHistory[undoCount] = zobristKey;
+        undoStack[undoCount++] = (move & 0xFFFFL)
+                | ((long) (captured + 1) << 16)
+                | ((long) castlingRights << 20)
+                | ((long) (epSquare + 1) << 24)
+                | ((long) halfmoveClock << 32);
+
+        if (flag == PackedMove.EP_CAPTURE) {
+            int capturedSq = to + (sideToMove == WHITE ? -8 : 8);
+            removePiece(capturedSq, mailbox[capturedSq]);
+        } else if (captured != EMPTY) {
+            removePiece(to, captured);
         }
 
-        // Basic piece movement validation (simplified)
-        char pieceType = piece.charAt(1);
-        int rowDiff = to[0] - from[0];
-        int colDiff = to[1] - from[1];
-
-        switch (pieceType) {
-            case 'p': // Pawn
-                return isValidPawnMove(from, to, rowDiff, colDiff, destPiece != null);
-            case 'r': // Rook
-                return (rowDiff == 0 || colDiff == 0) && isPathClear(from, to);
-            case 'n': // Knight
-                return (Math.abs(rowDiff) == 2 && Math.abs(colDiff) == 1) || 
-                       (Math.abs(rowDiff) == 1 && Math.abs(colDiff) == 2);
-            case 'b': // Bishop
-                return Math.abs(rowDiff) == Math.abs(colDiff) && isPathClear(from, to);
-            case 'q': // Queen
-                return ((rowDiff == 0 || colDiff == 0) || (Math.abs(rowDiff) == Math.abs(colDiff))) && isPathClear(from, to);
-            case 'k': // King
-                return Math.abs(rowDiff) <= 1 && Math.abs(colDiff) <= 1;
-            default:
-                return false;
+        removePiece(from, piece);
+        putPiece(to, PackedMove.isPromotion(move)
+                ? Piece.make(sideToMove, PackedMove.promotionType(move)) : piece);
+
+        // Castling also moves the rook
+        if (flag == PackedMove.KING_CASTLE) {
+            movePiece(to + 1, to - 1);
+        } else if (flag == PackedMove.QUEEN_CASTLE) {
+            movePiece(to - 2, to + 1);
         }
-    }
 
-    private boolean isValidPawnMove(int[] from, int[] to, int rowDiff, int colDiff, boolean isCapture) {
-        boolean isWhite = currentPlayer.equals("w");
-        int direction = isWhite ? -1 : 1;
-        int startRow = isWhite ? 6 : 1;
+        zobristKey ^= Zobrist.castling(castlingRights);
+        castlingRights &= CASTLING_MASK[from] & CASTLING_MASK[to];
+        zobristKey ^= Zobrist.castling(castlingRights);
 
-        if (colDiff == 0 && !isCapture) {
-            // Forward move
-            if (rowDiff == direction) return true;
-            if (from[0] == startRow && rowDiff == 2 * direction) return true;
-        } else if (Math.abs(colDiff) == 1 && rowDiff == direction && isCapture) {
-            // Diagonal capture
-            return true;
+        // The en passant square is only recorded when a capture is actually possible, so positions
+        // that differ only by an unusable double push hash (and repeat) as the same position
+        if (epSquare >= 0) {
+            zobristKey ^= Zobrist.enPassant(epSquare);
         }
-        return false;
+        epSquare = -1;
+        if (flag == PackedMove.DOUBLE_PUSH) {
+            int skipped = (from + to) >>> 1;
+            if ((Bitboards.pawnAttacks(sideToMove, skipped) & pieces[PAWN] & colors[sideToMove ^ 1]) != 0) {
+                epSquare = skipped;
+                zobristKey ^= Zobrist.enPassant(epSquare);
+            }
+        }
+        halfmoveClock = Piece.type(piece) == PAWN || flag == PackedMove.EP_CAPTURE || captured != EMPTY
+                ? 0 : halfmoveClock + 1;
+        if (sideToMove == BLACK) {
+            fullmoveNumber++;
+        }
+
+        // Switch players
+        sideToMove ^= 1;
+        zobristKey ^= Zobrist.SIDE_TO_MOVE;
     }
 
-    private boolean isPathClear(int[] from, int[] to) {
-        int rowStep = Integer.compare(to[0], from[0]);
-        int colStep = Integer.compare(to[1], from[1]);
-        
-        int currentRow = from[0] + rowStep;
-        int currentCol = from[1] + colStep;
-        
-        while (currentRow != to[0] || currentCol != to[1]) {
-            if (board[currentRow][currentCol] != null) {
-                return false;
-            }
-            currentRow += rowStep;
-            currentCol += colStep;
+    // Takes back the last move played with makeMove(int)
+    public void unmakeMove() {
+        fen = null;
+        long undo = undoStack[--undoCount];
+        int move = (int) (undo & 0xFFFF);
+        int captured = (int) ((undo >>> 16) & 0xF) - 1;
+
+        sideToMove ^= 1;
+        if (sideToMove == BLACK) {
+            fullmoveNumber--;
         }
-        return true;
+        castlingRights = (int) ((undo >>> 20) & 0xF);
+        epSquare = (int) ((undo >>> 24) & 0x7F) - 1;
+        halfmoveClock = (int) ((undo >>> 32) & 0xFFFF);
+
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        int flag = PackedMove.flag(move);
+
+        if (flag == PackedMove.KING_CASTLE) {
+            movePiece(to - 1, to + 1);
+        } else if (flag == PackedMove.QUEEN_CASTLE) {
+            movePiece(to + 1, to - 2);
+        }
+
+        int piece = mailbox[to];
+        removePiece(to, piece);
+        putPiece(from, PackedMove.isPromotion(move) ? Piece.make(sideToMove, PAWN) : piece);
+
+        if (flag == PackedMove.EP_CAPTURE) {
+            putPiece(to + (sideToMove == WHITE ? -8 : 8), Piece.make(sideToMove ^ 1, PAWN));
+        } else if (captured != EMPTY) {
+            putPiece(to, captured);
+        }
+
+        // The piece updates above toggled the key back and forth; the saved key is exact
+        zobristKey = keyHistory[undoCount];
+    }
+
+    private void movePiece(int from, int to) {
+        int piece = mailbox[from];
+        removePiece(from, piece);
+        putPiece(to, piece);
     }
 
     private void checkGameOver() {
-        // Check for checkmate and stalemate
-        if (isCheckmate()) {
+        // No legal moves left: checkmate or stalemate
+        if (MoveGenerator.generateLegalMoves(this, moveBuffer, 0) == 0) {
             gameOver = true;
-            winner = currentPlayer.equals("w") ? "Player-2(Black)" : "Player-1(White)";
-        } else if (isStalemate()) {
+            if (isInCheck()) {
+                winner = sideToMove == WHITE ? "Player-2(Black)" : "Player-1(White)";
+            } else {
+                winner = "Draw";
+            }
+        } else if (isDraw()) {
             gameOver = true;
             winner = "Draw";
         }
-        
-        // Count kings as fallback
-        boolean whiteKingExists = false;
-        boolean blackKingExists = false;
-        
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                if ("wk".equals(board[i][j])) whiteKingExists = true;
-                if ("bk".equals(board[i][j])) blackKingExists = true;
-            }
+    }
+
+    public List<Move> generateLegalMoves() {
+        int count = MoveGenerator.generateLegalMoves(this, moveBuffer, 0);
+        List<Move> legalMoves = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            legalMoves.add(PackedMove.toMove(moveBuffer[i]));
         }
-        
-        if (!whiteKingExists) {
-            gameOver = true;
-            winner = "Player-2(Black)";
-        } else if (!blackKingExists) {
-            gameOver = true;
-            winner = "Player-1(White)";
+        return legalMoves;
+    }
+
+    // Allocation-free variant: fills the buffer with PackedMove moves and returns the count
+    public int generateLegalMoves(int[] moves) {
+        return MoveGenerator.generateLegalMoves(this, moves, 0);
+    }
+
+    public boolean isInCheck() {
+        long king = pieces[KING] & colors[sideToMove];
+        return king != 0 && isSquareAttacked(Long.numberOfTrailingZeros(king), sideToMove ^ 1);
+    }
+
+    boolean isSquareAttacked(int sq, int byColor) {
+        return (attackersTo(sq, colors[WHITE] | colors[BLACK]) & colors[byColor]) != 0;
+    }
+
+    // Pieces of both colors attacking sq given an occupancy
+    long attackersTo(int sq, long occupied) {
+        return (Bitboards.pawnAttacks(BLACK, sq) & pieces[PAWN] & colors[WHITE])
+             | (Bitboards.pawnAttacks(WHITE, sq) & pieces[PAWN] & colors[BLACK])
+             | (Bitboards.knightAttacks(sq) & pieces[KNIGHT])
+             | (Bitboards.kingAttacks(sq) & pieces[KING])
+             | (Bitboards.bishopAttacks(sq, occupied) & (pieces[BISHOP] | pieces[QUEEN]))
+             | (Bitboards.rookAttacks(sq, occupied) & (pieces[ROOK] | pieces[QUEEN]));
+    }
+
+    // Package-level access for the move generator
+    int sideToMove() {
+        return sideToMove;
+    }
+
+    int castlingRights() {
+        return castlingRights;
+    }
+
+    int epSquare() {
+        return epSquare;
+    }
+
+    int pieceOn(int sq) {
+        return mailbox[sq];
+    }
+
+    long colorBitboard(int color) {
+        return colors[color];
+    }
+
+    long getPawnKey() {
+        return pawnKey;
+    }
+
+    int pieceSquareScore() {
+        return pieceSquareScore;
+    }
+
+    int phase() {
+        return phase;
+    }
+
+    NnueAccumulator nnue() {
+        return nnue;
+    }
+
+    // Builds the accumulator from the current board, or drops it with null
+    void setNnue(NnueNetwork network) {
+        this.nnue = network == null ? null : new NnueAccumulator(network, this);
+    }
+
+    long pieceBitboard(int color, int type) {
+        return pieces[type] & colors[color];
+    }
+
+    // Piece on a square in the "wp"/"bk" notation, or null when empty or not a square
+    public String getPieceAt(String square) {
+        int sq = Bitboards.square(square);
+        return sq < 0 ? null : Piece.name(mailbox[sq]);
+    }
+
+    // Row 0 is rank 8, as the board has always been laid out for callers
+    public String[][] getBoard() {
+        String[][] board = new String[8][8];
+        for (int sq = 0; sq < 64; sq++) {
+            board[7 - Bitboards.rank(sq)][Bitboards.file(sq)] = Piece.name(mailbox[sq]);
         }
+        return board;
     }
-    
-    private boolean isCheckmate() {
-        if (!isInCheck(currentPlayer)) {
-            return false;
+
+    // FEN of the current position, built once per ply and reused until the next make/unmake.
+    // The en passant square is only written when a capture is possible, which engines accept as equivalent.
+    public String getFen() {
+        if (fen == null) {
+            fen = buildFen();
         }
-        
-        // Try all possible moves for the current player
-        for (int fromRow = 0; fromRow < 8; fromRow++) {
-            for (int fromCol = 0; fromCol < 8; fromCol++) {
-                String piece = board[fromRow][fromCol];
-                if (piece != null && piece.startsWith(currentPlayer)) {
-                    for (int toRow = 0; toRow < 8; toRow++) {
-                        for (int toCol = 0; toCol < 8; toCol++) {
-                            if (isValidMove(new int[]{fromRow, fromCol}, new int[]{toRow, toCol}, piece)) {
-                                // Make the move temporarily
-                                String originalPiece = board[toRow][toCol];
-                                board[toRow][toCol] = piece;
-                                board[fromRow][fromCol] = null;
-                                
-                                boolean stillInCheck = isInCheck(currentPlayer);
-                                
-                                // Undo the move
-                                board[fromRow][fromCol] = piece;
-                                board[toRow][toCol] = originalPiece;
-                                
-                                if (!stillInCheck) {
-                                    return false; // Found a legal move
-                                }
-                            }
-                        }
-                    }
+        return fen;
+    }
+
+    public String getStartingFen() {
+        return startingFen;
+    }
+
+    private String buildFen() {
+        StringBuilder sb = new StringBuilder(90);
+        for (int rank = 7; rank >= 0; rank--) {
+            int empty = 0;
+            for (int file = 0; file < 8; file++) {
+                int piece = mailbox[rank * 8 + file];
+                if (piece == EMPTY) {
+                    empty++;
+                    continue;
                 }
-            }
-        }
-        return true; // No legal moves found
-    }
-    
-    private boolean isInCheck(String player) {
-        // Find the king
-        int[] kingPos = findKing(player);
-        if (kingPos == null) return false;
-        
-        // Check if any opponent piece can attack the king
-        String opponent = player.equals("w") ? "b" : "w";
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                String piece = board[row][col];
-                if (piece != null && piece.startsWith(opponent)) {
-                    if (isValidMove(new int[]{row, col}, kingPos, piece)) {
-                        return true;
-                    }
+                if (empty > 0) {
+                    sb.append((char) ('0' + empty));
+                    empty = 0;
                 }
+                char c = Piece.typeChar(Piece.type(piece));
+                sb.append(Piece.color(piece) == WHITE ? Character.toUpperCase(c) : c);
             }
-        }
-        return false;
-    }
-    
-    private int[] findKing(String player) {
-        String kingPiece = player + "k";
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                if (kingPiece.equals(board[row][col])) {
-                    return new int[]{row, col};
-                }
+            if (empty > 0) {
+                sb.append((char) ('0' + empty));
+            }
+            if (rank > 0) {
+                sb.append('/');
             }
         }
-        return null;
-    }
-
-    private int[] algebraicToPosition(String algebraic) {
-        if (algebraic == null || algebraic.length() != 2) return null;
-        
-        char file = algebraic.charAt(0);
-        char rank = algebraic.charAt(1);
-        
-        if (file < 'a' || file > 'h' || rank < '1' || rank > '8') return null;
-        
-        int col = file - 'a';
-        int row = 8 - (rank - '0');
-        
-        return new int[]{row, col};
-    }
 
-    public String[][] getBoard() {
-        return board;
+        sb.append(sideToMove == WHITE ? " w " : " b ");
+        if (castlingRights == 0) {
+            sb.append('-');
+        } else {
+            if ((castlingRights & WHITE_KINGSIDE) != 0) sb.append('K');
+            if ((castlingRights & WHITE_QUEENSIDE) != 0) sb.append('Q');
+            if ((castlingRights & BLACK_KINGSIDE) != 0) sb.append('k');
+            if ((castlingRights & BLACK_QUEENSIDE) != 0) sb.append('q');
+        }
+        sb.append(' ').append(epSquare >= 0 ? Bitboards.squareName(epSquare) : "-");
+        sb.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber);
+        return sb.toString();
     }
 
     public String getCurrentPlayer() {
-        return currentPlayer;
+        return Piece.colorName(sideToMove);
     }
 
     public boolean isGameOver() {
@@ -274,47 +538,78 @@ public class ChessEngine {
     }
 
     public String getTurn() {
-        return currentPlayer;
+        return Piece.colorName(sideToMove);
     }
 
+    // Threefold repetition, fifty-move rule or insufficient material (stalemate is reported separately)
     public boolean isDraw() {
-        // Simplified draw detection
-        return false;
+        return halfmoveClock >= 100 || isThreefoldRepetition() || isInsufficientMaterial();
     }
 
-    public boolean isStalemate() {
-        if (isInCheck(currentPlayer)) {
-            return false; // Can't be stalemate if in check
+    // Only positions since the last capture or pawn move can repeat, and only with the same side to move
+    public boolean isThreefoldRepetition() {
+        int repetitions = 0;
+        int oldest = Math.max(0, undoCount - halfmoveClock);
+        for (int i = undoCount - 2; i >= oldest; i -= 2) {
+            if (keyHistory[i] == zobristKey && ++repetitions == 2) {
+                return true;
+            }
         }
-        
-        // Check if current player has any legal moves
-        for (int fromRow = 0; fromRow < 8; fromRow++) {
-            for (int fromCol = 0; fromCol < 8; fromCol++) {
-                String piece = board[fromRow][fromCol];
-                if (piece != null && piece.startsWith(currentPlayer)) {
-                    for (int toRow = 0; toRow < 8; toRow++) {
-                        for (int toCol = 0; toCol < 8; toCol++) {
-                            if (isValidMove(new int[]{fromRow, fromCol}, new int[]{toRow, toCol}, piece)) {
-                                // Make the move temporarily
-                                String originalPiece = board[toRow][toCol];
-                                board[toRow][toCol] = piece;
-                                board[fromRow][fromCol] = null;
-                                
-                                boolean wouldBeInCheck = isInCheck(currentPlayer);
-                                
-                                // Undo the move
-                                board[fromRow][fromCol] = piece;
-                                board[toRow][toCol] = originalPiece;
-                                
-                                if (!wouldBeInCheck) {
-                                    return false; // Found a legal move
-                                }
-                            }
-                        }
-                    }
-                }
+        return false;
+    }
+
+    // Search treats a single repeat since the last irreversible move as a draw; the earliest possible one is four plies back
+    boolean isRepetition() {
+        int oldest = Math.max(0, undoCount - halfmoveClock);
+        for (int i = undoCount - 4; i >= oldest; i -= 2) {
+            if (keyHistory[i] == zobristKey) {
+                return true;
             }
         }
-        return true; // No legal moves found
+        return false;
+    }
+
+    // Bare kings, a single minor piece, or bishops that all stand on one square color
+    public boolean isInsufficientMaterial() {
+        if ((pieces[PAWN] | pieces[ROOK] | pieces[QUEEN]) != 0) {
+            return false;
+        }
+        long minors = pieces[KNIGHT] | pieces[BISHOP];
+        if (Long.bitCount(minors) <= 1) {
+            return true;
+        }
+        long darkSquares = 0xAA55AA55AA55AA55L;
+        return pieces[KNIGHT] == 0
+                && ((pieces[BISHOP] & darkSquares) == 0 || (pieces[BISHOP] & ~darkSquares) == 0);
+    }
+
+    // 64-bit Zobrist key of the current position, usable as a cache key by analysis and book lookups
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    // Every move played since the starting position, oldest first, as PackedMove shorts
+    public short[] getMoveHistory() {
+        short[] history = new short[undoCount];
+        for (int i = 0; i < undoCount; i++) {
+            history[i] = (short) undoStack[i];
+        }
+        return history;
+    }
+
+    public int getMoveCount() {
+        return undoCount;
+    }
+
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public boolean isCheckmate() {
+        return isInCheck() && MoveGenerator.generateLegalMoves(this, moveBuffer, 0) == 0;
+    }
+
+    public boolean isStalemate() {
+        return !isInCheck() && MoveGenerator.generateLegalMoves(this, moveBuffer, 0) == 0;
     }
-}
\ No newline at end of file
+}
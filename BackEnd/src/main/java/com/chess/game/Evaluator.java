@@ -0,0 +1,198 @@
+package com.chess.game;
+
+import static com.chess.game.Piece.*;
+
+// Static evaluation: material plus piece-square tables, with the king table blended
+// between middlegame and endgame by the remaining non-pawn material, plus pawn structure.
+// Material, piece-square and phase terms are kept up to date by ChessEngine as pieces move, so an
+// evaluation only looks up the two kings; pawn structure is cached by the position's pawn-only key.
+public final class Evaluator {
+    public static final int[] PIECE_VALUES = {100, 320, 330, 500, 900, 0};
+
+    // Phase weight of each piece type; 24 is a full set of minors, rooks and queens
+    private static final int[] PHASE_WEIGHTS = {0, 1, 1, 2, 4, 0};
+    private static final int MAX_PHASE = 24;
+
+    // Tables are written as seen from White with rank 8 on top, so White reads sq ^ 56 and Black reads sq
+    private static final int[] PAWN_TABLE = {
+         0,  0,  0,  0,  0,  0,  0,  0,
+        50, 50, 50, 50, 50, 50, 50, 50,
+        10, 10, 20, 30, 30, 20, 10, 10,
+         5,  5, 10, 25, 25, 10,  5,  5,
+         0,  0,  0, 20, 20,  0,  0,  0,
+         5, -5,-10,  0,  0,-10, -5,  5,
+         5, 10, 10,-20,-20, 10, 10,  5,
+         0,  0,  0,  0,  0,  0,  0,  0
+    };
+    private static final int[] KNIGHT_TABLE = {
+        -50,-40,-30,-30,-30,-30,-40,-50,
+        -40,-20,  0,  0,  0,  0,-20,-40,
+        -30,  0, 10, 15, 15, 10,  0,-30,
+        -30,  5, 15, 20, 20, 15,  5,-30,
+        -30,  0, 15, 20, 20, 15,  0,-30,
+        -30,  5, 10, 15, 15, 10,  5,-30,
+        -40,-20,  0,  5,  5,  0,-20,-40,
+        -50,-40,-30,-30,-30,-30,-40,-50
+    };
+    private static final int[] BISHOP_TABLE = {
+        -20,-10,-10,-10,-10,-10,-10,-20,
+        -10,  0,  0,  0,  0,  0,  0,-10,
+        -10,  0,  5, 10, 10,  5,  0,-10,
+        -10,  5,  5, 10, 10,  5,  5,-10,
+        -10,  0, 10, 10, 10, 10,  0,-10,
+        -10, 10, 10, 10, 10, 10, 10,-10,
+        -10,  5,  0,  0,  0,  0,  5,-10,
+        -20,-10,-10,-10,-10,-10,-10,-20
+    };
+    private static final int[] ROOK_TABLE = {
+         0,  0,  0,  0,  0,  0,  0,  0,
+         5, 10, 10, 10, 10, 10, 10,  5,
+        -5,  0,  0,  0,  0,  0,  0, -5,
+        -5,  0,  0,  0,  0,  0,  0, -5,
+        -5,  0,  0,  0,  0,  0,  0, -5,
+        -5,  0,  0,  0,  0,  0,  0, -5,
+        -5,  0,  0,  0,  0,  0,  0, -5,
+         0,  0,  0,  5,  5,  0,  0,  0
+    };
+    private static final int[] QUEEN_TABLE = {
+        -20,-10,-10, -5, -5,-10,-10,-20,
+        -10,  0,  0,  0,  0,  0,  0,-10,
+        -10,  0,  5,  5,  5,  5,  0,-10,
+         -5,  0,  5,  5,  5,  5,  0, -5,
+          0,  0,  5,  5,  5,  5,  0, -5,
+        -10,  5,  5,  5,  5,  5,  0,-10,
+        -10,  0,  5,  0,  0,  0,  0,-10,
+        -20,-10,-10, -5, -5,-10,-10,-20
+    };
+    private static final int[] KING_MIDDLEGAME_TABLE = {
+        -30,-40,-40,-50,-50,-40,-40,-30,
+        -30,-40,-40,-50,-50,-40,-40,-30,
+        -30,-40,-40,-50,-50,-40,-40,-30,
+        -30,-40,-40,-50,-50,-40,-40,-30,
+        -20,-30,-30,-40,-40,-30,-30,-20,
+        -10,-20,-20,-20,-20,-20,-20,-10,
+         20, 20,  0,  0,  0,  0, 20, 20,
+         20, 30, 10,  0,  0, 10, 30, 20
+    };
+    private static final int[] KING_ENDGAME_TABLE = {
+        -50,-40,-30,-20,-20,-30,-40,-50,
+        -30,-20,-10,  0,  0,-10,-20,-30,
+        -30,-10, 20, 30, 30, 20,-10,-30,
+        -30,-10, 30, 40, 40, 30,-10,-30,
+        -30,-10, 30, 40, 40, 30,-10,-30,
+        -30,-10, 20, 30, 30, 20,-10,-30,
+        -30,-30,  0,  0,  0,  0,-30,-30,
+        -50,-30,-30,-30,-30,-30,-30,-50
+    };
+    private static final int[][] TABLES = {PAWN_TABLE, KNIGHT_TABLE, BISHOP_TABLE, ROOK_TABLE, QUEEN_TABLE};
+
+    private static final int DOUBLED_PAWN_PENALTY = 10;
+    private static final int ISOLATED_PAWN_PENALTY = 15;
+    // By rank from the pawn's own side, rank 2 to rank 7
+    private static final int[] PASSED_PAWN_BONUS = {0, 5, 10, 20, 35, 60, 100, 0};
+
+    // Material plus table value of each piece on each square, positive for White; kings are tapered separately
+    private static final int[] PIECE_SQUARE = new int[12 * 64];
+    private static final long[] ADJACENT_FILES = new long[8];
+    // Squares in front of a pawn on its own and adjacent files, per color
+    private static final long[][] PASSED_MASKS = new long[2][64];
+
+    static {
+        for (int color = WHITE; color <= BLACK; color++) {
+            int sign = color == WHITE ? 1 : -1;
+            int flip = color == WHITE ? 56 : 0;
+            for (int type = PAWN; type <= QUEEN; type++) {
+                for (int sq = 0; sq < 64; sq++) {
+                    PIECE_SQUARE[Piece.make(color, type) * 64 + sq] = sign * (PIECE_VALUES[type] + TABLES[type][sq ^ flip]);
+                }
+            }
+        }
+        for (int file = 0; file < 8; file++) {
+            ADJACENT_FILES[file] = (file > 0 ? fileMask(file - 1) : 0) | (file < 7 ? fileMask(file + 1) : 0);
+        }
+        for (int sq = 0; sq < 64; sq++) {
+            long files = fileMask(Bitboards.file(sq)) | ADJACENT_FILES[Bitboards.file(sq)];
+            int rank = Bitboards.rank(sq);
+            PASSED_MASKS[WHITE][sq] = rank == 7 ? 0 : files & (-1L << (8 * (rank + 1)));
+            PASSED_MASKS[BLACK][sq] = files & ((1L << (8 * rank)) - 1);
+        }
+    }
+
+    private Evaluator() {}
+
+    // Incremental contribution of a piece on a square, for ChessEngine to add and subtract as pieces move
+    static int pieceSquare(int piece, int sq) {
+        return PIECE_SQUARE[piece * 64 + sq];
+    }
+
+    static int phaseWeight(int piece) {
+        return PHASE_WEIGHTS[Piece.type(piece)];
+    }
+
+    // Score in centipawns from the side to move's point of view
+    public static int evaluate(ChessEngine position) {
+        return evaluate(position, null);
+    }
+
+    // Same, reusing pawn-structure scores from the table when the pawns have been seen before.
+    // A position carrying a network accumulator is scored by the network instead.
+    public static int evaluate(ChessEngine position, PawnHashTable pawnTable) {
+        NnueAccumulator nnue = position.nnue();
+        if (nnue != null) {
+            return nnue.evaluate(position.sideToMove());
+        }
+
+        int score = position.pieceSquareScore();
+
+        int phase = Math.min(position.phase(), MAX_PHASE);
+        int whiteKing = Long.numberOfTrailingZeros(position.pieceBitboard(WHITE, KING));
+        int blackKing = Long.numberOfTrailingZeros(position.pieceBitboard(BLACK, KING));
+        int kingMiddlegame = KING_MIDDLEGAME_TABLE[whiteKing ^ 56] - KING_MIDDLEGAME_TABLE[blackKing];
+        int kingEndgame = KING_ENDGAME_TABLE[whiteKing ^ 56] - KING_ENDGAME_TABLE[blackKing];
+        score += (kingMiddlegame * phase + kingEndgame * (MAX_PHASE - phase)) / MAX_PHASE;
+
+        if (pawnTable == null) {
+            score += pawnStructure(position);
+        } else {
+            long pawnKey = position.getPawnKey();
+            int pawns = pawnTable.probe(pawnKey);
+            if (pawns == PawnHashTable.MISS) {
+                pawns = pawnStructure(position);
+                pawnTable.store(pawnKey, pawns);
+            }
+            score += pawns;
+        }
+        return position.sideToMove() == WHITE ? score : -score;
+    }
+
+    // Doubled, isolated and passed pawns, positive for White; depends only on where the pawns are
+    static int pawnStructure(ChessEngine position) {
+        int score = 0;
+        for (int color = WHITE; color <= BLACK; color++) {
+            int sign = color == WHITE ? 1 : -1;
+            long own = position.pieceBitboard(color, PAWN);
+            long enemy = position.pieceBitboard(color ^ 1, PAWN);
+            for (int file = 0; file < 8; file++) {
+                int count = Long.bitCount(own & fileMask(file));
+                if (count > 1) {
+                    score -= sign * DOUBLED_PAWN_PENALTY * (count - 1);
+                }
+                if (count > 0 && (own & ADJACENT_FILES[file]) == 0) {
+                    score -= sign * ISOLATED_PAWN_PENALTY * count;
+                }
+            }
+            for (long bb = own; bb != 0; bb &= bb - 1) {
+                int sq = Long.numberOfTrailingZeros(bb);
+                if ((enemy & PASSED_MASKS[color][sq]) == 0) {
+                    int rank = color == WHITE ? Bitboards.rank(sq) : 7 - Bitboards.rank(sq);
+                    score += sign * PASSED_PAWN_BONUS[rank];
+                }
+            }
+        }
+        return score;
+    }
+
+    private static long fileMask(int file) {
+        return 0x0101010101010101L << file;
+    }
+}
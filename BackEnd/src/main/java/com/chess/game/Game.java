@@ -1,12 +1,17 @@
 package com.chess.game;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.chess.service.ChessEngineService;
+import com.chess.service.EngineScheduler;
+import com.chess.service.EvalStream;
 import com.chess.dto.ChatMessageDto;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CancellationException;
 
 public class Game {
     private WebSocketSession player1;
@@ -21,7 +26,10 @@ public class Game {
     private GameManager gameManager;
     private ChessEngineService chessEngineService;
     private List<ChatMessageDto> chatHistory = new ArrayList<>();
-    private List<String> moveHistory = new ArrayList<>();
+    // Live evaluation of the last move's analysis; replaced, and the old one silenced, on every move
+    private volatile EvalStream liveEval;
+    // Ply of the move that ended the game, -1 if none did; that move's analysis is still delivered
+    private volatile int finalPly = -1;
 
     public Game(WebSocketSession player1, WebSocketSession player2) {
         this(player1, player2, generateGameId());
@@ -75,8 +83,8 @@ public class Game {
                 )
             ));
 
-            player1.sendMessage(new TextMessage(player1Message));
-            player2.sendMessage(new TextMessage(player2Message));
+            send(player1, player1Message);
+            send(player2, player2Message);
 
         } catch (Exception e) {
             System.err.println("Error initializing game: " + e.getMessage());
@@ -95,53 +103,34 @@ public class Game {
 
         try {
             // Check if move captures a piece
-            String capturedPiece = null;
-            String[][] board = chessEngine.getBoard();
-            int[] toPos = algebraicToPosition(move.getTo());
-            if (toPos != null && board[toPos[0]][toPos[1]] != null) {
-                capturedPiece = board[toPos[0]][toPos[1]];
-            }
+            String capturedPiece = chessEngine.getPieceAt(move.getTo());
+            // The analysis compares the move against the position it was played from
+            String fenBeforeMove = getCurrentFEN();
             
             boolean moveSuccessful = chessEngine.makeMove(move);
             if (!moveSuccessful) {
                 return;
             }
+            int ply = moveCount;
+            if (liveEval != null) {
+                liveEval.cancel();
+            }
+            // A hint still being worked out is for the position this move just left
+            if (chessEngineService != null) {
+                chessEngineService.cancelHints(gameId, ply + 1);
+            }
 
-            // Add move to history for analysis
-            moveHistory.add(move.getFrom() + move.getTo());
-            
             // Send capture notification if piece was captured
             if (capturedPiece != null) {
                 sendCaptureNotification(socket, capturedPiece, move);
             }
             
-            // Analyze the move
-            if (chessEngineService != null) {
-                try {
-                    String fen = getCurrentFEN(); // You'll need to implement this
-                    ChessEngineService.MoveAnalysis analysis = chessEngineService.analyzeMove(fen, move.getFrom() + move.getTo());
-                    
-                    // Send move analysis to the player who made the move
-                    String analysisMessage = objectMapper.writeValueAsString(Map.of(
-                        "type", Messages.MOVE_ANALYSIS,
-                        "payload", Map.of(
-                            "move", move.getFrom() + move.getTo(),
-                            "classification", analysis.getClassification(),
-                            "bestMove", analysis.getBestMove(),
-                            "scoreDiff", analysis.getScoreAfter() - analysis.getScoreBefore(),
-                            "evaluation", analysis.getScoreAfter()
-                        )
-                    ));
-                    
-                    socket.sendMessage(new TextMessage(analysisMessage));
-                } catch (Exception e) {
-                    System.err.println("Error analyzing move: " + e.getMessage());
-                }
-            }
             // Reset the timer for the next player
             resetTimer();
 
             if (chessEngine.isGameOver()) {
+                finalPly = ply;
+                sendMoveAnalysis(socket, fenBeforeMove, move, ply);
                 sendGameOver();
                 return;
             }
@@ -149,28 +138,118 @@ public class Game {
             // Send the updated move to both players
             isYourTurn = !isYourTurn;
             
-            String moveMessage1 = objectMapper.writeValueAsString(Map.of(
-                "type", Messages.MOVE,
-                "isYourTurn", isYourTurn,
-                "payload", move
-            ));
-
-            String moveMessage2 = objectMapper.writeValueAsString(Map.of(
-                "type", Messages.MOVE,
-                "isYourTurn", !isYourTurn,
-                "payload", move
-            ));
+            String moveMessage1 = moveMessage(move, isYourTurn);
+            String moveMessage2 = moveMessage(move, !isYourTurn);
 
-            player1.sendMessage(new TextMessage(moveMessage1));
-            player2.sendMessage(new TextMessage(moveMessage2));
+            send(player1, moveMessage1);
+            send(player2, moveMessage2);
 
             moveCount++;
 
+            // The opponent already has the move; the analysis follows whenever the engine is done
+            sendMoveAnalysis(socket, fenBeforeMove, move, ply);
+
         } catch (Exception e) {
             System.err.println("Error making move: " + e.getMessage());
         }
     }
 
+    // Sent only to the player who made the move, from an analysis thread: eval updates while the engine
+    // deepens, then the classification
+    private void sendMoveAnalysis(WebSocketSession socket, String fenBeforeMove, Move move, int ply) {
+        if (chessEngineService == null) return;
+        // Keep the promotion piece, or every underpromotion would be analyzed as a queen promotion
+        String promotion = move.getPromotion() != null && !move.getPromotion().isEmpty()
+                ? move.getPromotion().substring(0, 1).toLowerCase() : "";
+        String uci = move.getFrom() + move.getTo() + promotion;
+        liveEval = chessEngineService.newEvalStream(update -> sendEvalUpdate(socket, uci, update));
+        chessEngineService.analyzeMoveAsync(fenBeforeMove, uci, liveEval, owner(socket), new EngineScheduler.Token(gameId, ply))
+                .whenComplete((analysis, error) -> {
+            if (error != null) {
+                if (!isCancelled(error)) {
+                    System.err.println("Error analyzing move: " + error.getMessage());
+                }
+                return;
+            }
+            try {
+                String analysisMessage = objectMapper.writeValueAsString(Map.of(
+                    "type", Messages.MOVE_ANALYSIS,
+                    "payload", Map.of(
+                        "move", uci,
+                        "classification", analysis.getClassification(),
+                        "bestMove", analysis.getBestMove(),
+                        "scoreDiff", analysis.getScoreAfter() - analysis.getScoreBefore(),
+                        "evaluation", analysis.getScoreAfter(),
+                        "depth", analysis.getDepth()
+                    )
+                ));
+                if (socket.isOpen()) {
+                    send(socket, analysisMessage);
+                }
+            } catch (Exception e) {
+                System.err.println("Error sending move analysis: " + e.getMessage());
+            }
+        });
+    }
+
+    private void sendEvalUpdate(WebSocketSession socket, String uci, EvalStream.Update update) {
+        try {
+            Map<String, Object> payload = new HashMap<>(Map.of(
+                "move", uci,
+                "depth", update.getDepth(),
+                "pv", update.getPv()
+            ));
+            // Mate scores are encoded far beyond any centipawn value; the client shows them as M<n>
+            if (update.getMate() != null) {
+                payload.put("mate", update.getMate());
+            } else {
+                payload.put("evaluation", update.getScore());
+            }
+            String updateMessage = objectMapper.writeValueAsString(Map.of(
+                "type", Messages.EVAL_UPDATE,
+                "payload", payload
+            ));
+            if (socket.isOpen()) {
+                send(socket, updateMessage);
+            }
+        } catch (Exception e) {
+            System.err.println("Error sending eval update: " + e.getMessage());
+        }
+    }
+
+    // Engine work dropped because the game moved on needs neither a reply nor a log line
+    private static boolean isCancelled(Throwable error) {
+        return error instanceof CancellationException || error.getCause() instanceof CancellationException;
+    }
+
+    // The game is over: hints and live analyses still queued or searching are for positions nobody will play.
+    // The analysis of a move that ended the game is kept, as is post-game analysis.
+    public void cancelEngineWork() {
+        int keep = finalPly;
+        if (liveEval != null && keep < 0) {
+            liveEval.cancel();
+        }
+        if (chessEngineService != null) {
+            chessEngineService.cancelGame(gameId, keep < 0 ? Integer.MAX_VALUE : keep);
+        }
+    }
+
+    // Analysis results arrive on engine threads while the socket thread may be sending too,
+    // and a session only allows one sender at a time
+    private void send(WebSocketSession session, String message) throws IOException {
+        synchronized (session) {
+            session.sendMessage(new TextMessage(message));
+        }
+    }
+
+    String moveMessage(Move move, boolean isYourTurn) throws JsonProcessingException {
+        return objectMapper.writeValueAsString(Map.of(
+            "type", Messages.MOVE,
+            "isYourTurn", isYourTurn,
+            "payload", move
+        ));
+    }
+
     private void sendCaptureNotification(WebSocketSession capturer, String capturedPiece, Move move) {
         try {
             String capturerEmail = getPlayerEmailFromSession(capturer);
@@ -190,10 +269,10 @@ public class Game {
             
             // Send to both players
             if (player1 != null && player1.isOpen()) {
-                player1.sendMessage(new TextMessage(captureMessage));
+                send(player1, captureMessage);
             }
             if (player2 != null && player2.isOpen()) {
-                player2.sendMessage(new TextMessage(captureMessage));
+                send(player2, captureMessage);
             }
             
         } catch (Exception e) {
@@ -214,19 +293,6 @@ public class Game {
         }
     }
     
-    private int[] algebraicToPosition(String algebraic) {
-        if (algebraic == null || algebraic.length() != 2) return null;
-        
-        char file = algebraic.charAt(0);
-        char rank = algebraic.charAt(1);
-        
-        if (file < 'a' || file > 'h' || rank < '1' || rank > '8') return null;
-        
-        int col = file - 'a';
-        int row = 8 - (rank - '0');
-        
-        return new int[]{row, col};
-    }
     public void resign(WebSocketSession session) {
         try {
             String winner;
@@ -259,8 +325,8 @@ public class Game {
                     )
             ));
 
-            player1.sendMessage(new TextMessage(gameOverMessage1));
-            player2.sendMessage(new TextMessage(gameOverMessage2));
+            send(player1, gameOverMessage1);
+            send(player2, gameOverMessage2);
 
             if (timer != null) {
                 timer.cancel();
@@ -271,6 +337,8 @@ public class Game {
                 gameManager.updatePlayerStatsAndElo(player1, player2, result, gameId);
             }
             
+            cancelEngineWork();
+
             // Send game analysis after game ends
             sendGameAnalysis();
 
@@ -279,6 +347,13 @@ public class Game {
         }
     }
 
+    // Stops the move clock without ending the game
+    public void stopTimer() {
+        if (timer != null) {
+            timer.cancel();
+        }
+    }
+
     private void resetTimer() {
         if (timer != null) {
             timer.cancel();
@@ -308,7 +383,7 @@ public class Game {
             String message;
             String result;
 
-            if (chessEngine.isStalemate() || chessEngine.isDraw()) {
+            if (chessEngine.isStalemate() || chessEngine.isDraw() || "Draw".equals(chessEngine.getWinner())) {
                 winner = "No one win";
                 message = "It's a draw!";
                 result = "draw";
@@ -334,8 +409,8 @@ public class Game {
                 )
             ));
 
-            player1.sendMessage(new TextMessage(gameOverMessage1));
-            player2.sendMessage(new TextMessage(gameOverMessage2));
+            send(player1, gameOverMessage1);
+            send(player2, gameOverMessage2);
 
             if (timer != null) {
                 timer.cancel();
@@ -346,6 +421,8 @@ public class Game {
                 gameManager.updatePlayerStatsAndElo(player1, player2, result, gameId);
             }
             
+            cancelEngineWork();
+
             // Send game analysis after game ends
             sendGameAnalysis();
 
@@ -372,11 +449,11 @@ public class Game {
             
             // Send to both players
             if (player1 != null && player1.isOpen()) {
-                player1.sendMessage(new TextMessage(chatMessageJson));
+                send(player1, chatMessageJson);
                 System.out.println("Chat sent to player1");
             }
             if (player2 != null && player2.isOpen()) {
-                player2.sendMessage(new TextMessage(chatMessageJson));
+                send(player2, chatMessageJson);
                 System.out.println("Chat sent to player2");
             }
             
@@ -398,21 +475,32 @@ public class Game {
                         "hint", "Chess engine not available. Try developing your pieces towards the center!"
                     )
                 ));
-                requester.sendMessage(new TextMessage(fallbackMessage));
+                send(requester, fallbackMessage);
             } catch (Exception e) {
                 System.err.println("Error sending fallback hint: " + e.getMessage());
             }
             return;
         }
         
+        String fen = getCurrentFEN();
+        System.out.println("Current FEN: " + fen);
+        chessEngineService.getBestMoveAsync(fen, 10, owner(requester), new EngineScheduler.Token(gameId, moveCount)).whenComplete((bestMove, error) -> {
+            if (error != null && isCancelled(error)) {
+                return;
+            }
+            if (error != null) {
+                System.err.println("Error getting hint: " + error.getMessage());
+            }
+            sendHintResponse(requester, fen, error == null ? bestMove : null);
+        });
+    }
+
+    private void sendHintResponse(WebSocketSession requester, String fen, String bestMove) {
         try {
-            String fen = getCurrentFEN(); // You'll need to implement this
-            System.out.println("Current FEN: " + fen);
-            String bestMove = chessEngineService.getBestMove(fen, 10);
             System.out.println("Best move from engine: " + bestMove);
             
             if (bestMove != null) {
-                String hintText = generateHintText(bestMove);
+                String hintText = generateHintText(fen, bestMove);
                 String hintMessage = objectMapper.writeValueAsString(Map.of(
                     "type", Messages.HINT_RESPONSE,
                     "payload", Map.of(
@@ -422,7 +510,7 @@ public class Game {
                 ));
                 
                 System.out.println("Sending hint message: " + hintMessage);
-                requester.sendMessage(new TextMessage(hintMessage));
+                send(requester, hintMessage);
             } else {
                 System.out.println("No best move found");
                 // Send fallback
@@ -433,7 +521,7 @@ public class Game {
                         "hint", "Consider controlling the center or developing your pieces."
                     )
                 ));
-                requester.sendMessage(new TextMessage(fallbackMessage));
+                send(requester, fallbackMessage);
             }
         } catch (Exception e) {
             System.err.println("Error sending hint: " + e.getMessage());
@@ -441,19 +529,15 @@ public class Game {
         }
     }
     
-    private String generateHintText(String move) {
+    // Reads the hinted position rather than the live board, which may have moved on by the time the hint is ready
+    private String generateHintText(String fen, String move) {
         if (move.length() < 4) return "Consider this move: " + move;
         
         String from = move.substring(0, 2);
         String to = move.substring(2, 4);
         
         // Get piece at from position
-        String[][] board = chessEngine.getBoard();
-        int[] fromPos = algebraicToPosition(from);
-        String piece = null;
-        if (fromPos != null) {
-            piece = board[fromPos[0]][fromPos[1]];
-        }
+        String piece = new ChessEngine(fen).getPieceAt(from);
         
         String pieceType = piece != null ? getPieceDisplayName(piece) : "piece";
         
@@ -462,79 +546,41 @@ public class Game {
     }
     
     private void sendGameAnalysis() {
-        if (chessEngineService == null || moveHistory.isEmpty()) return;
-        
-        try {
-            ChessEngineService.GameAnalysis analysis = chessEngineService.analyzeGame(moveHistory, null);
-            
-            String analysisMessage = objectMapper.writeValueAsString(Map.of(
-                "type", Messages.GAME_ANALYSIS,
-                "payload", Map.of(
-                    "accuracy", analysis.getAccuracy(),
-                    "blunders", analysis.getBlunders(),
-                    "mistakes", analysis.getMistakes(),
-                    "inaccuracies", analysis.getInaccuracies(),
-                    "excellent", analysis.getExcellent(),
-                    "good", analysis.getGood(),
-                    "moves", analysis.getMoves(),
-                    "totalMoves", moveHistory.size(),
-                    "gameLength", moveHistory.size() / 2
-                )
-            ));
-            
-            player1.sendMessage(new TextMessage(analysisMessage));
-            player2.sendMessage(new TextMessage(analysisMessage));
-            
-        } catch (Exception e) {
-            System.err.println("Error sending game analysis: " + e.getMessage());
-        }
-    }
-    
-    private String getCurrentFEN() {
-        StringBuilder fen = new StringBuilder();
+        short[] moveHistory = chessEngine.getMoveHistory();
+        if (chessEngineService == null || moveHistory.length == 0) return;
         
-        // Board position
-        String[][] board = chessEngine.getBoard();
-        for (int rank = 0; rank < 8; rank++) {
-            int emptyCount = 0;
-            for (int file = 0; file < 8; file++) {
-                String piece = board[rank][file];
-                if (piece == null) {
-                    emptyCount++;
-                } else {
-                    if (emptyCount > 0) {
-                        fen.append(emptyCount);
-                        emptyCount = 0;
-                    }
-                    // Convert piece notation
-                    char pieceChar = piece.charAt(1);
-                    if (piece.charAt(0) == 'w') {
-                        pieceChar = Character.toUpperCase(pieceChar);
-                    }
-                    fen.append(pieceChar);
-                }
-            }
-            if (emptyCount > 0) {
-                fen.append(emptyCount);
+        chessEngineService.analyzeGameAsync(moveHistory, chessEngine.getStartingFen(), gameId).whenComplete((analysis, error) -> {
+            if (error != null) {
+                System.err.println("Error analyzing game: " + error.getMessage());
+                return;
             }
-            if (rank < 7) {
-                fen.append('/');
+            try {
+                String analysisMessage = objectMapper.writeValueAsString(Map.of(
+                    "type", Messages.GAME_ANALYSIS,
+                    "payload", Map.of(
+                        "accuracy", analysis.getAccuracy(),
+                        "blunders", analysis.getBlunders(),
+                        "mistakes", analysis.getMistakes(),
+                        "inaccuracies", analysis.getInaccuracies(),
+                        "excellent", analysis.getExcellent(),
+                        "good", analysis.getGood(),
+                        "moves", analysis.getMoves(),
+                        "totalMoves", moveHistory.length,
+                        "gameLength", moveHistory.length / 2
+                    )
+                ));
+                
+                send(player1, analysisMessage);
+                send(player2, analysisMessage);
+                
+            } catch (Exception e) {
+                System.err.println("Error sending game analysis: " + e.getMessage());
             }
-        }
-        
-        // Active color
-        fen.append(' ').append(chessEngine.getCurrentPlayer());
-        
-        // Castling availability (simplified)
-        fen.append(" KQkq");
-        
-        // En passant target square (simplified)
-        fen.append(" -");
-        
-        // Halfmove clock and fullmove number (simplified)
-        fen.append(" 0 ").append((moveCount / 2) + 1);
-        
-        return fen.toString();
+        });
+    }
+    
+    String getCurrentFEN() {
+        return chessEngine.getFen();
     }
 
     private String getPlayerEmailFromSession(WebSocketSession session) {
@@ -555,6 +601,12 @@ public class Game {
         return null;
     }
 
+    // Engine work is shared fairly between users; a player without an email counts under the game
+    private String owner(WebSocketSession session) {
+        String email = getPlayerEmailFromSession(session);
+        return email != null ? email : gameId;
+    }
+
     private static String generateGameId() {
         return java.util.UUID.randomUUID().toString().substring(0, 7);
     }
@@ -245,7 +245,7 @@ public class GameManager {
         }
     }
 
-    private Game findGameBySession(WebSocketSession session) {
+    Game findGameBySession(WebSocketSession session) {
         for (Game game : games) {
             if (game.getPlayer1().equals(session) || game.getPlayer2().equals(session)) {
                 return game;
@@ -262,6 +262,7 @@ public class GameManager {
     }
 
     private void removeGame(Game game) {
+        game.cancelEngineWork();
         games.remove(game);
         friendGames.values().removeIf(g -> g.equals(game));
     }
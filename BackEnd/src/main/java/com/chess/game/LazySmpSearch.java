@@ -0,0 +1,119 @@
+package com.chess.game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+// Lazy SMP: the calling thread runs the main search while helper threads search copies of the same
+// position at staggered depths. Nothing is split or synchronised between them except the shared
+// transposition table, which is what lets the helpers speed up the main thread.
+// Helpers come from a bounded executor shared by all games; when it is busy a search simply runs with
+// fewer helpers rather than queueing, so hints can never tie up more threads than the pool allows.
+public class LazySmpSearch {
+    private final TranspositionTable transpositionTable;
+    private final ExecutorService executor;
+    private final int threads;
+    private final NnueNetwork network;
+    // Searchers are reused across requests: each keeps 64-ply move buffers and history tables
+    private final ConcurrentLinkedQueue<Search> idle = new ConcurrentLinkedQueue<>();
+
+    public LazySmpSearch(TranspositionTable transpositionTable, ExecutorService executor, int threads) {
+        this(transpositionTable, executor, threads, null);
+    }
+
+    // With a network every thread evaluates with it; null keeps the hand-written evaluation
+    public LazySmpSearch(TranspositionTable transpositionTable, ExecutorService executor, int threads, NnueNetwork network) {
+        this.transpositionTable = transpositionTable;
+        this.executor = executor;
+        this.threads = Math.max(1, threads);
+        this.network = network;
+    }
+
+    public Result search(ChessEngine position, int maxDepth, long timeMillis, long maxNodes) {
+        return search(position, maxDepth, timeMillis, maxNodes, threads);
+    }
+
+    // Same as search with an explicit thread count (main thread included)
+    public Result search(ChessEngine position, int maxDepth, long timeMillis, long maxNodes, int threadCount) {
+        long start = System.nanoTime();
+        if (transpositionTable != null) {
+            transpositionTable.newSearch();
+        }
+
+        List<Search> helpers = new ArrayList<>();
+        List<Future<Search.Result>> helperResults = new ArrayList<>();
+        for (int i = 1; i < threadCount; i++) {
+            Search helper = acquire();
+            ChessEngine copy = new ChessEngine(position);
+            // Odd helpers skip the first iteration, so threads reach each depth at different times
+            int startDepth = 1 + (i & 1);
+            try {
+                helperResults.add(executor.submit(() -> helper.run(copy, startDepth, maxDepth, timeMillis, 0)));
+                helpers.add(helper);
+            } catch (RejectedExecutionException e) {
+                idle.offer(helper);
+                break;
+            }
+        }
+
+        Search main = acquire();
+        Search.Result result;
+        try {
+            result = main.run(position, 1, maxDepth, timeMillis, maxNodes);
+        } finally {
+            idle.offer(main);
+            for (Search helper : helpers) {
+                helper.stop();
+            }
+        }
+
+        long nodes = result.getNodes();
+        for (int i = 0; i < helperResults.size(); i++) {
+            try {
+                nodes += helperResults.get(i).get().getNodes();
+            } catch (Exception e) {
+                System.err.println("Search helper failed: " + e.getMessage());
+            }
+            idle.offer(helpers.get(i));
+        }
+
+        return new Result(new Search.Result(result.getBestMove(), result.getScore(), result.getDepth(),
+                nodes, System.nanoTime() - start), 1 + helpers.size());
+    }
+
+    private Search acquire() {
+        Search search = idle.poll();
+        if (search == null) {
+            search = new Search(transpositionTable, network);
+        }
+        search.reset();
+        return search;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    // Main thread's result with node counts summed over every thread that took part
+    public static class Result {
+        private final Search.Result result;
+        private final int threads;
+
+        Result(Search.Result result, int threads) {
+            this.result = result;
+            this.threads = threads;
+        }
+
+        public Search.Result getResult() { return result; }
+        public int getThreads() { return threads; }
+        public String getBestMoveUci() { return result.getBestMoveUci(); }
+
+        @Override
+        public String toString() {
+            return result + " threads " + threads;
+        }
+    }
+}
@@ -12,4 +12,5 @@ public class Messages {
     public static final String HINT_RESPONSE = "hint_response";
     public static final String MOVE_ANALYSIS = "move_analysis";
     public static final String GAME_ANALYSIS = "game_analysis";
+    public static final String EVAL_UPDATE = "eval_update";
 }
\ No newline at end of file
@@ -0,0 +1,195 @@
+package com.chess.game;
+
+import static com.chess.game.PackedMove.*;
+import static com.chess.game.Piece.*;
+
+// Legal move generator producing PackedMove-encoded moves.
+public final class MoveGenerator {
+    // No position has more than 218 legal moves
+    public static final int MAX_MOVES = 256;
+
+    private MoveGenerator() {}
+
+    // Writes every legal move of the side to move into moves[offset..] and returns the new end offset
+    public static int generateLegalMoves(ChessEngine pos, int[] moves, int offset) {
+        int us = pos.sideToMove();
+        int them = us ^ 1;
+        long own = pos.colorBitboard(us);
+        long enemy = pos.colorBitboard(them);
+        long occupied = own | enemy;
+        int kingSq = Long.numberOfTrailingZeros(pos.pieceBitboard(us, KING));
+        int n = offset;
+
+        long checkers = pos.attackersTo(kingSq, occupied) & enemy;
+        n = generateKingMoves(pos, kingSq, own, occupied, enemy, moves, n);
+
+        // In double check only the king may move
+        if (Long.bitCount(checkers) > 1) {
+            return n;
+        }
+
+        long targets = ~own;
+        if (checkers != 0) {
+            int checkerSq = Long.numberOfTrailingZeros(checkers);
+            targets &= Bitboards.between(kingSq, checkerSq) | checkers;
+        } else {
+            n = generateCastling(pos, kingSq, us, occupied, moves, n);
+        }
+
+        long pinned = pinnedPieces(pos, kingSq, us, occupied);
+
+        long knights = pos.pieceBitboard(us, KNIGHT) & ~pinned; // a pinned knight can never move
+        while (knights != 0) {
+            int from = Long.numberOfTrailingZeros(knights);
+            knights &= knights - 1;
+            n = addMoves(from, Bitboards.knightAttacks(from) & targets, enemy, moves, n);
+        }
+
+        long diagonal = pos.pieceBitboard(us, BISHOP) | pos.pieceBitboard(us, QUEEN);
+        while (diagonal != 0) {
+            int from = Long.numberOfTrailingZeros(diagonal);
+            diagonal &= diagonal - 1;
+            long attacks = Bitboards.bishopAttacks(from, occupied) & targets;
+            if ((pinned & Bitboards.bit(from)) != 0) attacks &= Bitboards.line(kingSq, from);
+            n = addMoves(from, attacks, enemy, moves, n);
+        }
+
+        long straight = pos.pieceBitboard(us, ROOK) | pos.pieceBitboard(us, QUEEN);
+        while (straight != 0) {
+            int from = Long.numberOfTrailingZeros(straight);
+            straight &= straight - 1;
+            long attacks = Bitboards.rookAttacks(from, occupied) & targets;
+            if ((pinned & Bitboards.bit(from)) != 0) attacks &= Bitboards.line(kingSq, from);
+            n = addMoves(from, attacks, enemy, moves, n);
+        }
+
+        return generatePawnMoves(pos, kingSq, us, enemy, occupied, targets, pinned, moves, n);
+    }
+
+    private static int addMoves(int from, long targets, long enemy, int[] moves, int n) {
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            moves[n++] = encode(from, to, (enemy & Bitboards.bit(to)) != 0 ? CAPTURE : QUIET);
+        }
+        return n;
+    }
+
+    private static int generateKingMoves(ChessEngine pos, int kingSq, long own, long occupied,
+                                         long enemy, int[] moves, int n) {
+        long targets = Bitboards.kingAttacks(kingSq) & ~own;
+        // The king must not hide behind itself from a slider, so take it off the board first
+        long withoutKing = occupied ^ Bitboards.bit(kingSq);
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            if ((pos.attackersTo(to, withoutKing) & enemy) == 0) {
+                moves[n++] = encode(kingSq, to, (enemy & Bitboards.bit(to)) != 0 ? CAPTURE : QUIET);
+            }
+        }
+        return n;
+    }
+
+    private static int generateCastling(ChessEngine pos, int kingSq, int us, long occupied, int[] moves, int n) {
+        int rights = pos.castlingRights();
+        int them = us ^ 1;
+        int base = us == WHITE ? 0 : 56;
+        if (kingSq != base + 4) return n;
+
+        int kingSide = us == WHITE ? ChessEngine.WHITE_KINGSIDE : ChessEngine.BLACK_KINGSIDE;
+        int queenSide = us == WHITE ? ChessEngine.WHITE_QUEENSIDE : ChessEngine.BLACK_QUEENSIDE;
+
+        if ((rights & kingSide) != 0
+                && (occupied & (Bitboards.bit(base + 5) | Bitboards.bit(base + 6))) == 0
+                && !pos.isSquareAttacked(base + 5, them)
+                && !pos.isSquareAttacked(base + 6, them)) {
+            moves[n++] = encode(kingSq, base + 6, KING_CASTLE);
+        }
+        if ((rights & queenSide) != 0
+                && (occupied & (Bitboards.bit(base + 1) | Bitboards.bit(base + 2) | Bitboards.bit(base + 3))) == 0
+                && !pos.isSquareAttacked(base + 3, them)
+                && !pos.isSquareAttacked(base + 2, them)) {
+            moves[n++] = encode(kingSq, base + 2, QUEEN_CASTLE);
+        }
+        return n;
+    }
+
+    private static int generatePawnMoves(ChessEngine pos, int kingSq, int us, long enemy, long occupied,
+                                         long targets, long pinned, int[] moves, int n) {
+        int push = us == WHITE ? 8 : -8;
+        int startRank = us == WHITE ? 1 : 6;
+        int lastRank = us == WHITE ? 7 : 0;
+        int epSquare = pos.epSquare();
+
+        long pawns = pos.pieceBitboard(us, PAWN);
+        while (pawns != 0) {
+            int from = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+            long allowed = targets;
+            if ((pinned & Bitboards.bit(from)) != 0) allowed &= Bitboards.line(kingSq, from);
+
+            int to = from + push;
+            boolean promotes = Bitboards.rank(to) == lastRank;
+            if ((occupied & Bitboards.bit(to)) == 0) {
+                if ((allowed & Bitboards.bit(to)) != 0) {
+                    n = promotes ? addPromotions(from, to, 0, moves, n) : add(from, to, QUIET, moves, n);
+                }
+                int twoAhead = to + push;
+                if (Bitboards.rank(from) == startRank && (occupied & Bitboards.bit(twoAhead)) == 0
+                        && (allowed & Bitboards.bit(twoAhead)) != 0) {
+                    moves[n++] = encode(from, twoAhead, DOUBLE_PUSH);
+                }
+            }
+
+            long captures = Bitboards.pawnAttacks(us, from) & enemy & allowed;
+            while (captures != 0) {
+                int target = Long.numberOfTrailingZeros(captures);
+                captures &= captures - 1;
+                n = promotes ? addPromotions(from, target, CAPTURE, moves, n) : add(from, target, CAPTURE, moves, n);
+            }
+
+            if (epSquare >= 0 && (Bitboards.pawnAttacks(us, from) & Bitboards.bit(epSquare)) != 0
+                    && isLegalEnPassant(pos, from, epSquare, kingSq, us, occupied)) {
+                moves[n++] = encode(from, epSquare, EP_CAPTURE);
+            }
+        }
+        return n;
+    }
+
+    // En passant removes two pieces from one rank, so test the resulting occupancy directly
+    private static boolean isLegalEnPassant(ChessEngine pos, int from, int to, int kingSq, int us, long occupied) {
+        int capturedSq = to + (us == WHITE ? -8 : 8);
+        long after = (occupied ^ Bitboards.bit(from) ^ Bitboards.bit(capturedSq)) | Bitboards.bit(to);
+        long enemy = pos.colorBitboard(us ^ 1) & ~Bitboards.bit(capturedSq);
+        return (pos.attackersTo(kingSq, after) & enemy) == 0;
+    }
+
+    private static int add(int from, int to, int flag, int[] moves, int n) {
+        moves[n++] = encode(from, to, flag);
+        return n;
+    }
+
+    private static int addPromotions(int from, int to, int captureFlag, int[] moves, int n) {
+        // Queen first so the most likely promotion is tried first by search and matching
+        for (int type = QUEEN; type >= KNIGHT; type--) {
+            moves[n++] = encode(from, to, PROMOTION | captureFlag | (type - KNIGHT));
+        }
+        return n;
+    }
+
+    private static long pinnedPieces(ChessEngine pos, int kingSq, int us, long occupied) {
+        int them = us ^ 1;
+        long snipers = (Bitboards.rookAttacks(kingSq, 0L) & (pos.pieceBitboard(them, ROOK) | pos.pieceBitboard(them, QUEEN)))
+                     | (Bitboards.bishopAttacks(kingSq, 0L) & (pos.pieceBitboard(them, BISHOP) | pos.pieceBitboard(them, QUEEN)));
+        long pinned = 0L;
+        while (snipers != 0) {
+            int sniperSq = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = Bitboards.between(kingSq, sniperSq) & occupied;
+            if (Long.bitCount(blockers) == 1) {
+                pinned |= blockers & pos.colorBitboard(us);
+            }
+        }
+        return pinned;
+    }
+}
@@ -0,0 +1,55 @@
+package com.chess.game;
+
+import static com.chess.game.Piece.*;
+
+// Hidden-layer values for both perspectives of one position. ChessEngine adds and subtracts a weight row
+// for every piece it places or removes, so make and unmake keep it exact without ever rebuilding it.
+final class NnueAccumulator {
+    private final NnueNetwork network;
+    private final short[][] values;
+
+    NnueAccumulator(NnueNetwork network, ChessEngine position) {
+        this.network = network;
+        this.values = new short[2][];
+        values[WHITE] = network.featureBias.clone();
+        values[BLACK] = network.featureBias.clone();
+        for (int sq = 0; sq < 64; sq++) {
+            int piece = position.pieceOn(sq);
+            if (piece != EMPTY) {
+                add(piece, sq);
+            }
+        }
+    }
+
+    private NnueAccumulator(NnueAccumulator other) {
+        this.network = other.network;
+        this.values = new short[][]{other.values[WHITE].clone(), other.values[BLACK].clone()};
+    }
+
+    NnueAccumulator copy() {
+        return new NnueAccumulator(this);
+    }
+
+    void add(int piece, int sq) {
+        network.kernels.add(values[WHITE], network.featureWeights, network.featureOffset(WHITE, piece, sq));
+        network.kernels.add(values[BLACK], network.featureWeights, network.featureOffset(BLACK, piece, sq));
+    }
+
+    void remove(int piece, int sq) {
+        network.kernels.subtract(values[WHITE], network.featureWeights, network.featureOffset(WHITE, piece, sq));
+        network.kernels.subtract(values[BLACK], network.featureWeights, network.featureOffset(BLACK, piece, sq));
+    }
+
+    NnueNetwork network() {
+        return network;
+    }
+
+    // Centipawns for the side to move
+    int evaluate(int sideToMove) {
+        return network.evaluate(values[sideToMove], values[sideToMove ^ 1]);
+    }
+
+    short[] values(int perspective) {
+        return values[perspective];
+    }
+}
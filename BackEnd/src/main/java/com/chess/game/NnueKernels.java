@@ -0,0 +1,14 @@
+package com.chess.game;
+
+// Inner loops of the network, with a scalar and a Vector API implementation that must agree bit for bit
+interface NnueKernels {
+
+    // accumulator[i] += weights[offset + i], wrapping like a Java short
+    void add(short[] accumulator, short[] weights, int offset);
+
+    // accumulator[i] -= weights[offset + i], wrapping like a Java short
+    void subtract(short[] accumulator, short[] weights, int offset);
+
+    // Sum of clamp(us[i], 0, max) * weights[i] + clamp(them[i], 0, max) * weights[n + i], wrapping like a Java int
+    int output(short[] us, short[] them, int[] weights, int max);
+}
@@ -0,0 +1,125 @@
+package com.chess.game;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+import static com.chess.game.Piece.*;
+
+// Optional NNUE-style evaluation network: 768 piece-square inputs seen from each side, one hidden layer
+// shared by both perspectives, clipped ReLU, and a single output over (side to move, opponent).
+// The accumulator for the hidden layer is updated piece by piece as moves are made (NnueAccumulator),
+// so an evaluation only runs the small output layer.
+//
+// Weights are the quantised little-endian layout the common "bullet" trainer writes for a (768 -> N)x2 -> 1
+// network: feature weights [768][N], feature bias [N], output weights [2N], output bias, all int16, padded
+// to 64 bytes. Everything is integer arithmetic, so the Vector API kernels give bit-identical results to
+// the scalar ones.
+public class NnueNetwork {
+    static final int INPUTS = 768;
+    // Quantisation of the hidden layer and output weights, and centipawn scale of the output
+    static final int QA = 255;
+    static final int QB = 64;
+    static final int SCALE = 400;
+
+    final int hidden;
+    final short[] featureWeights;
+    final short[] featureBias;
+    // Widened once at load so the output layer multiplies ints
+    final int[] outputWeights;
+    final int outputBias;
+    final NnueKernels kernels;
+
+    NnueNetwork(int hidden, short[] featureWeights, short[] featureBias, int[] outputWeights, int outputBias,
+                NnueKernels kernels) {
+        this.hidden = hidden;
+        this.featureWeights = featureWeights;
+        this.featureBias = featureBias;
+        this.outputWeights = outputWeights;
+        this.outputBias = outputBias;
+        this.kernels = kernels;
+    }
+
+    // Uses the Vector API kernels when asked for, built in (-Pvector-api) and the JVM was started with
+    // --add-modules jdk.incubator.vector
+    public static NnueNetwork load(Path file, boolean simd) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        // N hidden units take 2 * (768N + N + 2N) + 2 bytes before padding, and the padding is under 64
+        int hidden = (bytes.length - 2) / (2 * (INPUTS + 3));
+        if (hidden <= 0 || bytes.length - (2 * (INPUTS + 3) * hidden + 2) >= 64) {
+            throw new IOException("Not a (768 -> N)x2 -> 1 network: " + file + " (" + bytes.length + " bytes)");
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        short[] featureWeights = new short[INPUTS * hidden];
+        short[] featureBias = new short[hidden];
+        int[] outputWeights = new int[2 * hidden];
+        buffer.asShortBuffer().get(featureWeights);
+        buffer.position(buffer.position() + featureWeights.length * 2);
+        for (int i = 0; i < hidden; i++) featureBias[i] = buffer.getShort();
+        for (int i = 0; i < 2 * hidden; i++) outputWeights[i] = buffer.getShort();
+        int outputBias = buffer.getShort();
+        return new NnueNetwork(hidden, featureWeights, featureBias, outputWeights, outputBias, kernels(simd));
+    }
+
+    // Untrained network with small random weights, for tests and benchmarks
+    static NnueNetwork random(int hidden, long seed, boolean simd) {
+        SplittableRandom random = new SplittableRandom(seed);
+        short[] featureWeights = new short[INPUTS * hidden];
+        short[] featureBias = new short[hidden];
+        int[] outputWeights = new int[2 * hidden];
+        for (int i = 0; i < featureWeights.length; i++) featureWeights[i] = (short) random.nextInt(-64, 65);
+        for (int i = 0; i < hidden; i++) featureBias[i] = (short) random.nextInt(-32, 160);
+        for (int i = 0; i < outputWeights.length; i++) outputWeights[i] = random.nextInt(-128, 129);
+        return new NnueNetwork(hidden, featureWeights, featureBias, outputWeights, random.nextInt(-1000, 1001),
+                kernels(simd));
+    }
+
+    // Same weights with the other kernels, for cross-checking
+    NnueNetwork withKernels(boolean simd) {
+        return new NnueNetwork(hidden, featureWeights, featureBias, outputWeights, outputBias, kernels(simd));
+    }
+
+    public static boolean isVectorApiAvailable() {
+        return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+                && NnueNetwork.class.getClassLoader().getResource("com/chess/game/VectorNnueKernels.class") != null;
+    }
+
+    // VectorNnueKernels is looked up by name and only on this path: the default build does not compile it,
+    // and a JVM without the incubator module never touches it
+    private static NnueKernels kernels(boolean simd) {
+        if (simd && isVectorApiAvailable()) {
+            try {
+                return (NnueKernels) Class.forName("com.chess.game.VectorNnueKernels").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                System.err.println("Vector API kernels unavailable, using scalar ones: " + e);
+            }
+        }
+        return new ScalarNnueKernels();
+    }
+
+    public boolean isSimd() {
+        return !(kernels instanceof ScalarNnueKernels);
+    }
+
+    public int getHiddenSize() {
+        return hidden;
+    }
+
+    // Offset of a piece's weight row in the accumulator of the given perspective: own pieces come first,
+    // and Black sees the board mirrored so both sides share the same weights
+    int featureOffset(int perspective, int piece, int sq) {
+        int relative = Piece.color(piece) == perspective ? 0 : 1;
+        int square = perspective == WHITE ? sq : sq ^ 56;
+        return (relative * 384 + Piece.type(piece) * 64 + square) * hidden;
+    }
+
+    // Centipawns for the side to move
+    int evaluate(short[] us, short[] them) {
+        long sum = kernels.output(us, them, outputWeights, QA) + outputBias;
+        return (int) (sum * SCALE / (QA * QB));
+    }
+}
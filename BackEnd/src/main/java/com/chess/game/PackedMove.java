@@ -0,0 +1,182 @@
+package com.chess.game;
+
+import static com.chess.game.Piece.*;
+
+// A move packed into 16 bits: bits 0-5 from square, 6-11 to square, 12-15 flag.
+// Fits a short, so move lists and histories are plain short[]/int[] instead of Move objects.
+public final class PackedMove {
+    public static final int NONE = 0;
+
+    // Flags
+    public static final int QUIET = 0;
+    public static final int DOUBLE_PUSH = 1;
+    public static final int KING_CASTLE = 2;
+    public static final int QUEEN_CASTLE = 3;
+    public static final int CAPTURE = 4;
+    public static final int EP_CAPTURE = 5;
+    // Promotions: PROMOTION + (piece type - KNIGHT), with the CAPTURE bit set for capture-promotions
+    public static final int PROMOTION = 8;
+
+    private PackedMove() {}
+
+    public static int encode(int from, int to, int flag) {
+        return from | (to << 6) | (flag << 12);
+    }
+
+    // Widens a move read back from a short[] without sign extension
+    public static int fromShort(short move) {
+        return move & 0xFFFF;
+    }
+
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    public static int flag(int move) {
+        return (move >>> 12) & 15;
+    }
+
+    public static boolean isCapture(int move) {
+        return (flag(move) & CAPTURE) != 0;
+    }
+
+    public static boolean isPromotion(int move) {
+        return (flag(move) & PROMOTION) != 0;
+    }
+
+    public static boolean isCastle(int move) {
+        int flag = flag(move);
+        return flag == KING_CASTLE || flag == QUEEN_CASTLE;
+    }
+
+    // Piece type promoted to, or -1
+    public static int promotionType(int move) {
+        return isPromotion(move) ? KNIGHT + (flag(move) & 3) : -1;
+    }
+
+    // "e2e4", "e7e8q"; castling is the king's two-square move, as UCI engines expect
+    public static String toUci(int move) {
+        String uci = Bitboards.squareName(from(move)) + Bitboards.squareName(to(move));
+        return isPromotion(move) ? uci + Piece.typeChar(promotionType(move)) : uci;
+    }
+
+    public static Move toMove(int move) {
+        int promotionType = promotionType(move);
+        return new Move(
+            Bitboards.squareName(from(move)),
+            Bitboards.squareName(to(move)),
+            promotionType >= 0 ? String.valueOf(Piece.typeChar(promotionType)) : null
+        );
+    }
+
+    // The legal move in this position matching a UCI string, or NONE
+    public static int fromUci(ChessEngine position, String uci) {
+        if (uci == null || uci.length() < 4 || uci.length() > 5) return NONE;
+        int from = Bitboards.square(uci.substring(0, 2));
+        int to = Bitboards.square(uci.substring(2, 4));
+        int promotionType = uci.length() == 5 ? Piece.typeOf(uci.charAt(4)) : -1;
+        if (from < 0 || to < 0) return NONE;
+
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = position.generateLegalMoves(moves);
+        for (int i = 0; i < count; i++) {
+            int m = moves[i];
+            if (from(m) == from && to(m) == to && promotionType(m) == promotionType) {
+                return m;
+            }
+        }
+        return NONE;
+    }
+
+    // Standard algebraic notation ("Nbd7", "exd6", "O-O", "e8=Q#") of a legal move in this position
+    public static String toSan(ChessEngine position, int move) {
+        int from = from(move);
+        int to = to(move);
+        int flag = flag(move);
+        StringBuilder san = new StringBuilder(8);
+
+        if (flag == KING_CASTLE) {
+            san.append("O-O");
+        } else if (flag == QUEEN_CASTLE) {
+            san.append("O-O-O");
+        } else {
+            int type = Piece.type(position.pieceOn(from));
+            if (type == PAWN) {
+                if (isCapture(move)) {
+                    san.append((char) ('a' + Bitboards.file(from)));
+                }
+            } else {
+                san.append(Character.toUpperCase(Piece.typeChar(type)));
+                appendDisambiguation(position, move, type, san);
+            }
+            if (isCapture(move)) {
+                san.append('x');
+            }
+            san.append(Bitboards.squareName(to));
+            if (isPromotion(move)) {
+                san.append('=').append(Character.toUpperCase(Piece.typeChar(promotionType(move))));
+            }
+        }
+
+        position.makeMove(move);
+        if (position.isInCheck()) {
+            san.append(position.generateLegalMoves(new int[MoveGenerator.MAX_MOVES]) == 0 ? '#' : '+');
+        }
+        position.unmakeMove();
+        return san.toString();
+    }
+
+    // The legal move in this position matching a SAN string (check marks and annotations optional), or NONE
+    public static int fromSan(ChessEngine position, String san) {
+        if (san == null) return NONE;
+        String wanted = stripSuffixes(san.trim().replace('0', 'O'));
+
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = position.generateLegalMoves(moves);
+        for (int i = 0; i < count; i++) {
+            if (stripSuffixes(toSan(position, moves[i])).equals(wanted)) {
+                return moves[i];
+            }
+        }
+        return NONE;
+    }
+
+    private static void appendDisambiguation(ChessEngine position, int move, int type, StringBuilder san) {
+        int from = from(move);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = position.generateLegalMoves(moves);
+        boolean ambiguous = false;
+        boolean sameFile = false;
+        boolean sameRank = false;
+
+        for (int i = 0; i < count; i++) {
+            int other = from(moves[i]);
+            if (other != from && to(moves[i]) == to(move) && Piece.type(position.pieceOn(other)) == type) {
+                ambiguous = true;
+                sameFile |= Bitboards.file(other) == Bitboards.file(from);
+                sameRank |= Bitboards.rank(other) == Bitboards.rank(from);
+            }
+        }
+
+        if (!ambiguous) return;
+        if (!sameFile) {
+            san.append((char) ('a' + Bitboards.file(from)));
+        } else if (!sameRank) {
+            san.append((char) ('1' + Bitboards.rank(from)));
+        } else {
+            san.append(Bitboards.squareName(from));
+        }
+    }
+
+    private static String stripSuffixes(String san) {
+        int end = san.length();
+        while (end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        return san.substring(0, end);
+    }
+}
@@ -0,0 +1,47 @@
+package com.chess.game;
+
+// Pawn-structure scores keyed by the pawn-only Zobrist key. Pawns move rarely compared with pieces,
+// so most evaluations in a search find their pawn score here instead of rescanning every file.
+// Owned by a single searcher, so it needs no synchronisation; collisions simply overwrite.
+public class PawnHashTable {
+    public static final int MISS = Integer.MIN_VALUE;
+
+    private final long[] keys;
+    private final int[] scores;
+    private final int mask;
+    private long probes;
+    private long hits;
+
+    // Rounded down to a power of two
+    public PawnHashTable(int entries) {
+        int size = Integer.highestOneBit(Math.max(1, entries));
+        this.keys = new long[size];
+        this.scores = new int[size];
+        this.mask = size - 1;
+    }
+
+    // An empty slot has key 0 and score 0, which is exactly the entry for a position without pawns
+    public int probe(long pawnKey) {
+        probes++;
+        int index = (int) pawnKey & mask;
+        if (keys[index] == pawnKey) {
+            hits++;
+            return scores[index];
+        }
+        return MISS;
+    }
+
+    public void store(long pawnKey, int score) {
+        int index = (int) pawnKey & mask;
+        keys[index] = pawnKey;
+        scores[index] = score;
+    }
+
+    public int getSize() {
+        return keys.length;
+    }
+
+    public double getHitRate() {
+        return probes == 0 ? 0 : (double) hits / probes;
+    }
+}
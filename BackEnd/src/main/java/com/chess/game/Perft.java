@@ -0,0 +1,126 @@
+package com.chess.game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Counts leaf nodes of the legal move tree. Used to check the move generator against
+// published reference counts and to measure make/unmake + generation throughput.
+public final class Perft {
+
+    private Perft() {}
+
+    public static Result run(String fen, int depth) {
+        ChessEngine position = new ChessEngine(fen);
+        long start = System.nanoTime();
+        long nodes = perft(position, depth, new int[Math.max(depth, 1)][MoveGenerator.MAX_MOVES]);
+        return new Result(fen, depth, nodes, System.nanoTime() - start);
+    }
+
+    // Splits the root moves across the pool; every task replays its root move on its own engine
+    public static Result runParallel(String fen, int depth, ForkJoinPool pool) {
+        long start = System.nanoTime();
+        long nodes = pool.invoke(new RootTask(fen, depth));
+        return new Result(fen, depth, nodes, System.nanoTime() - start);
+    }
+
+    public static long perft(ChessEngine position, int depth) {
+        return perft(position, depth, new int[Math.max(depth, 1)][MoveGenerator.MAX_MOVES]);
+    }
+
+    // One move buffer per remaining depth, so the recursion itself never allocates
+    private static long perft(ChessEngine position, int depth, int[][] buffers) {
+        if (depth == 0) return 1;
+
+        int[] moves = buffers[depth - 1];
+        int count = MoveGenerator.generateLegalMoves(position, moves, 0);
+        if (depth == 1) return count;
+
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            position.makeMove(moves[i]);
+            nodes += perft(position, depth - 1, buffers);
+            position.unmakeMove();
+        }
+        return nodes;
+    }
+
+    private static final class RootTask extends RecursiveTask<Long> {
+        private final String fen;
+        private final int depth;
+
+        RootTask(String fen, int depth) {
+            this.fen = fen;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            if (depth == 0) return 1L;
+
+            ChessEngine root = new ChessEngine(fen);
+            int[] moves = new int[MoveGenerator.MAX_MOVES];
+            int count = MoveGenerator.generateLegalMoves(root, moves, 0);
+            if (depth == 1) return (long) count;
+
+            List<MoveTask> tasks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                tasks.add(new MoveTask(fen, moves[i], depth - 1));
+            }
+            long nodes = 0;
+            for (MoveTask task : invokeAll(tasks)) {
+                nodes += task.join();
+            }
+            return nodes;
+        }
+    }
+
+    private static final class MoveTask extends RecursiveTask<Long> {
+        private final String fen;
+        private final int move;
+        private final int depth;
+
+        MoveTask(String fen, int move, int depth) {
+            this.fen = fen;
+            this.move = move;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            ChessEngine position = new ChessEngine(fen);
+            position.makeMove(move);
+            return perft(position, depth);
+        }
+    }
+
+    public static class Result {
+        private final String fen;
+        private final int depth;
+        private final long nodes;
+        private final long nanos;
+
+        public Result(String fen, int depth, long nodes, long nanos) {
+            this.fen = fen;
+            this.depth = depth;
+            this.nodes = nodes;
+            this.nanos = nanos;
+        }
+
+        public String getFen() { return fen; }
+        public int getDepth() { return depth; }
+        public long getNodes() { return nodes; }
+        public long getNanos() { return nanos; }
+
+        public long getNodesPerSecond() {
+            return nanos > 0 ? nodes * 1_000_000_000L / nanos : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("depth %d: %,d nodes in %.1f ms (%,d nps) - %s",
+                    depth, nodes, nanos / 1e6, getNodesPerSecond(), fen);
+        }
+    }
+}
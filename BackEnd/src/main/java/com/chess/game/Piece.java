@@ -0,0 +1,56 @@
+package com.chess.game;
+
+public final class Piece {
+    // Piece types
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+
+    // Colors
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    // A piece code is color * 6 + type, so white pawn = 0 ... black king = 11
+    public static final int EMPTY = -1;
+
+    // Same "wp"/"bk" names the board has always used, shared so callers never build new strings
+    private static final String[] NAMES = {
+        "wp", "wn", "wb", "wr", "wq", "wk",
+        "bp", "bn", "bb", "br", "bq", "bk"
+    };
+    private static final String TYPE_CHARS = "pnbrqk";
+
+    private Piece() {}
+
+    public static int make(int color, int type) {
+        return color * 6 + type;
+    }
+
+    public static int color(int piece) {
+        return piece < 6 ? WHITE : BLACK;
+    }
+
+    public static int type(int piece) {
+        return piece < 6 ? piece : piece - 6;
+    }
+
+    public static String name(int piece) {
+        return piece == EMPTY ? null : NAMES[piece];
+    }
+
+    // 'p', 'n', 'b', 'r', 'q', 'k' (either case) to a piece type, or -1
+    public static int typeOf(char c) {
+        return TYPE_CHARS.indexOf(Character.toLowerCase(c));
+    }
+
+    public static char typeChar(int type) {
+        return TYPE_CHARS.charAt(type);
+    }
+
+    public static String colorName(int color) {
+        return color == WHITE ? "w" : "b";
+    }
+}
@@ -0,0 +1,155 @@
+package com.chess.game;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.chess.game.Piece.*;
+
+// Read-only Polyglot opening book (.bin). The file is memory-mapped and binary-searched in place, so
+// lookups touch a handful of pages and the OS page cache is shared by every game.
+// Entries are 16 big-endian bytes sorted by key: key (8), move (2), weight (2), learn (4).
+//
+// Polyglot hashes positions with its own published table of 781 random numbers ("Random64", see
+// PolyglotRandom), not with our Zobrist keys.
+public class PolyglotBook {
+    private static final int ENTRY_BYTES = 16;
+    private static final int CASTLING_OFFSET = 768;
+    private static final int EN_PASSANT_OFFSET = 772;
+    private static final int TURN_OFFSET = 780;
+
+    private final MappedByteBuffer book;
+    private final int entryCount;
+    private final long[] random64 = PolyglotRandom.RANDOM64;
+
+    private PolyglotBook(MappedByteBuffer book) {
+        this.book = book;
+        this.entryCount = book == null ? 0 : book.capacity() / ENTRY_BYTES;
+    }
+
+    // A book that answers nothing, for when no book is configured
+    public static PolyglotBook empty() {
+        return new PolyglotBook(null);
+    }
+
+    public static PolyglotBook open(Path bookFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(bookFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size % ENTRY_BYTES != 0 || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a Polyglot book: " + bookFile);
+            }
+            // The mapping stays valid after the channel is closed
+            return new PolyglotBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    public boolean isEmpty() {
+        return entryCount == 0;
+    }
+
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    // Polyglot hash of a position
+    public long key(ChessEngine position) {
+        long key = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            int piece = position.pieceOn(sq);
+            if (piece != EMPTY) {
+                // Polyglot orders pieces black pawn, white pawn, black knight, ...
+                int kind = Piece.type(piece) * 2 + (Piece.color(piece) == WHITE ? 1 : 0);
+                key ^= random64[64 * kind + sq];
+            }
+        }
+        int rights = position.castlingRights();
+        if ((rights & ChessEngine.WHITE_KINGSIDE) != 0) key ^= random64[CASTLING_OFFSET];
+        if ((rights & ChessEngine.WHITE_QUEENSIDE) != 0) key ^= random64[CASTLING_OFFSET + 1];
+        if ((rights & ChessEngine.BLACK_KINGSIDE) != 0) key ^= random64[CASTLING_OFFSET + 2];
+        if ((rights & ChessEngine.BLACK_QUEENSIDE) != 0) key ^= random64[CASTLING_OFFSET + 3];
+        // Like the engine, Polyglot only counts the en passant file when a capture is possible
+        if (position.epSquare() >= 0) {
+            key ^= random64[EN_PASSANT_OFFSET + Bitboards.file(position.epSquare())];
+        }
+        if (position.sideToMove() == WHITE) {
+            key ^= random64[TURN_OFFSET];
+        }
+        return key;
+    }
+
+    // Book moves for the position as legal PackedMoves, highest weight first
+    public List<Entry> probe(ChessEngine position) {
+        if (isEmpty()) return Collections.emptyList();
+        long key = key(position);
+
+        // Lower bound: first entry whose key is not below the target (keys compare unsigned)
+        int lo = 0;
+        int hi = entryCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (Long.compareUnsigned(keyAt(mid), key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        for (int i = lo; i < entryCount && keyAt(i) == key; i++) {
+            int offset = i * ENTRY_BYTES;
+            // Absolute reads never touch the buffer's position, so one mapping serves every thread
+            int move = toPackedMove(position, book.getShort(offset + 8) & 0xFFFF);
+            int weight = book.getShort(offset + 10) & 0xFFFF;
+            if (move != PackedMove.NONE) {
+                entries.add(new Entry(move, weight));
+            }
+        }
+        entries.sort((a, b) -> Integer.compare(b.weight, a.weight));
+        return entries;
+    }
+
+    // Highest-weighted book move, or NONE when the position is not in the book
+    public int bestMove(ChessEngine position) {
+        List<Entry> entries = probe(position);
+        return entries.isEmpty() ? PackedMove.NONE : entries.get(0).move;
+    }
+
+    private long keyAt(int index) {
+        return book.getLong(index * ENTRY_BYTES);
+    }
+
+    // Polyglot moves are to-file (bits 0-2), to-row (3-5), from-file (6-8), from-row (9-11), promotion (12-14).
+    // Castling is written as the king capturing its own rook.
+    private static int toPackedMove(ChessEngine position, int polyglotMove) {
+        int to = polyglotMove & 63;
+        int from = (polyglotMove >>> 6) & 63;
+        int promotion = (polyglotMove >>> 12) & 7;
+
+        if (Piece.type(position.pieceOn(from)) == KING && position.pieceOn(to) != EMPTY
+                && Piece.color(position.pieceOn(to)) == Piece.color(position.pieceOn(from))) {
+            to = to > from ? from + 2 : from - 2;
+        }
+        String uci = Bitboards.squareName(from) + Bitboards.squareName(to)
+                + (promotion > 0 ? String.valueOf(Piece.typeChar(promotion)) : "");
+        return PackedMove.fromUci(position, uci);
+    }
+
+    public static class Entry {
+        private final int move;
+        private final int weight;
+
+        Entry(int move, int weight) {
+            this.move = move;
+            this.weight = weight;
+        }
+
+        public int getMove() { return move; }
+        public int getWeight() { return weight; }
+        public String getUci() { return PackedMove.toUci(move); }
+    }
+}
@@ -0,0 +1,29 @@
+package com.chess.game;
+
+final class ScalarNnueKernels implements NnueKernels {
+
+    @Override
+    public void add(short[] accumulator, short[] weights, int offset) {
+        for (int i = 0; i < accumulator.length; i++) {
+            accumulator[i] += weights[offset + i];
+        }
+    }
+
+    @Override
+    public void subtract(short[] accumulator, short[] weights, int offset) {
+        for (int i = 0; i < accumulator.length; i++) {
+            accumulator[i] -= weights[offset + i];
+        }
+    }
+
+    @Override
+    public int output(short[] us, short[] them, int[] weights, int max) {
+        int n = us.length;
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += Math.min(Math.max(us[i], 0), max) * weights[i];
+            sum += Math.min(Math.max(them[i], 0), max) * weights[n + i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,420 @@
+package com.chess.game;
+
+import java.util.Arrays;
+
+import static com.chess.game.Piece.*;
+
+// Iterative-deepening principal variation search with quiescence, built on make/unmake.
+// One instance per thread: killers, history and the per-ply move buffers are reused between searches.
+public class Search {
+    public static final int INFINITY = 32000;
+    // Mate scores are MATE - plies to mate, so shorter mates score higher
+    public static final int MATE = 31000;
+    public static final int MAX_PLY = 64;
+
+    // How often (in nodes) the clock is read
+    private static final int CHECK_INTERVAL = 2047;
+
+    private static final int BEST_MOVE_SCORE = 1_000_000;
+    private static final int CAPTURE_SCORE = 100_000;
+    private static final int PROMOTION_SCORE = 90_000;
+    private static final int KILLER_SCORE = 80_000;
+    private static final int HISTORY_LIMIT = 50_000;
+
+    private final int[][] moves = new int[MAX_PLY + 1][MoveGenerator.MAX_MOVES];
+    private final int[][] moveScores = new int[MAX_PLY + 1][MoveGenerator.MAX_MOVES];
+    private final int[][] killers = new int[MAX_PLY + 1][2];
+    // Indexed by side to move, from and to square
+    private final int[] history = new int[2 * 64 * 64];
+
+    // Shared between searches and threads; null searches without one
+    private final TranspositionTable transpositionTable;
+    // Per searcher, so helper threads never contend on it; 16K entries is 192 KB
+    private final PawnHashTable pawnTable = new PawnHashTable(1 << 14);
+    // Neural evaluation when set; read-only, so one network serves every searcher
+    private final NnueNetwork network;
+
+    private ChessEngine position;
+    private long nodes;
+    private long nodeLimit;
+    private long deadline;
+    private int completedDepth;
+    private int rootBestMove;
+    private volatile boolean stopped;
+
+    public Search() {
+        this(null);
+    }
+
+    public Search(TranspositionTable transpositionTable) {
+        this(transpositionTable, null);
+    }
+
+    public Search(TranspositionTable transpositionTable, NnueNetwork network) {
+        this.transpositionTable = transpositionTable;
+        this.network = network;
+    }
+
+    // Searches until maxDepth is completed, the time or node budget runs out, or stop() is called.
+    // A budget of zero or less means unlimited. The position is restored before returning.
+    public Result search(ChessEngine position, int maxDepth, long timeMillis, long maxNodes) {
+        if (transpositionTable != null) {
+            transpositionTable.newSearch();
+        }
+        stopped = false;
+        return run(position, 1, maxDepth, timeMillis, maxNodes);
+    }
+
+    // One search thread's iterative deepening from startDepth; Lazy SMP helpers start at staggered depths.
+    // Does not clear the stop flag, so a coordinator can stop a helper before it has even started.
+    Result run(ChessEngine position, int startDepth, int maxDepth, long timeMillis, long maxNodes) {
+        long start = System.nanoTime();
+        this.position = position;
+        this.nodes = 0;
+        this.nodeLimit = maxNodes > 0 ? maxNodes : Long.MAX_VALUE;
+        this.deadline = timeMillis > 0 ? start + timeMillis * 1_000_000L : Long.MAX_VALUE;
+        this.completedDepth = 0;
+        this.rootBestMove = PackedMove.NONE;
+        clearHeuristics();
+        // The accumulator lives on the position for the length of the search, so make/unmake keep it current
+        boolean attachNetwork = network != null && position.nnue() == null;
+        if (attachNetwork) {
+            position.setNnue(network);
+        }
+        try {
+            return iterate(position, start, startDepth, maxDepth);
+        } finally {
+            if (attachNetwork) {
+                position.setNnue(null);
+            }
+        }
+    }
+
+    private Result iterate(ChessEngine position, long start, int startDepth, int maxDepth) {
+
+        int bestMove = PackedMove.NONE;
+        int bestScore = 0;
+        int depthReached = 0;
+        for (int depth = Math.min(startDepth, maxDepth); depth <= Math.min(maxDepth, MAX_PLY); depth++) {
+            int score = alphaBeta(depth, 0, -INFINITY, INFINITY);
+            if (stopped && completedDepth > 0) {
+                break;
+            }
+            bestMove = rootBestMove;
+            bestScore = score;
+            depthReached = depth;
+            completedDepth = depth;
+            // No point looking deeper once a forced mate is found
+            if (Math.abs(score) >= MATE - MAX_PLY || stopped) {
+                break;
+            }
+        }
+
+        // The first iteration is never cut short by the budget, but an external stop can still leave no move
+        if (bestMove == PackedMove.NONE && position.generateLegalMoves(moves[0]) > 0) {
+            bestMove = moves[0][0];
+        }
+        return new Result(bestMove, bestScore, depthReached, nodes, System.nanoTime() - start);
+    }
+
+    // Asks a running search to return as soon as possible with the last completed iteration
+    public void stop() {
+        stopped = true;
+    }
+
+    void reset() {
+        stopped = false;
+    }
+
+    private int alphaBeta(int depth, int ply, int alpha, int beta) {
+        if ((++nodes & CHECK_INTERVAL) == 0) {
+            checkLimits();
+        }
+        if (stopped) return 0;
+
+        if (ply > 0 && (position.getHalfmoveClock() >= 100 || position.isRepetition()
+                || position.isInsufficientMaterial())) {
+            return 0;
+        }
+        if (ply >= MAX_PLY) {
+            return Evaluator.evaluate(position, pawnTable);
+        }
+
+        boolean inCheck = position.isInCheck();
+        if (inCheck) {
+            depth++;
+        }
+        if (depth <= 0) {
+            return quiescence(ply, alpha, beta);
+        }
+
+        long key = position.getZobristKey();
+        int hashMove = PackedMove.NONE;
+        if (transpositionTable != null) {
+            long entry = transpositionTable.probe(key);
+            if (entry != TranspositionTable.MISS) {
+                hashMove = TranspositionTable.move(entry);
+                // Cut off only in null-window nodes, so the principal variation is always searched out
+                if (ply > 0 && beta - alpha == 1 && TranspositionTable.depth(entry) >= depth) {
+                    int score = fromTable(TranspositionTable.score(entry), ply);
+                    int bound = TranspositionTable.bound(entry);
+                    if (bound == TranspositionTable.EXACT
+                            || (bound == TranspositionTable.LOWER && score >= beta)
+                            || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                        return score;
+                    }
+                }
+            }
+        }
+
+        int[] list = moves[ply];
+        int count = position.generateLegalMoves(list);
+        if (count == 0) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        scoreMoves(ply, count, ply == 0 && rootBestMove != PackedMove.NONE ? rootBestMove : hashMove);
+
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = PackedMove.NONE;
+        for (int i = 0; i < count; i++) {
+            int move = pickNext(ply, i, count);
+            position.makeMove(move);
+            int score;
+            if (i == 0) {
+                score = -alphaBeta(depth - 1, ply + 1, -beta, -alpha);
+            } else {
+                // Null-window probe first; only re-search when the move might raise alpha
+                score = -alphaBeta(depth - 1, ply + 1, -alpha - 1, -alpha);
+                if (score > alpha && score < beta) {
+                    score = -alphaBeta(depth - 1, ply + 1, -beta, -alpha);
+                }
+            }
+            position.unmakeMove();
+            if (stopped) return 0;
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                if (ply == 0) {
+                    rootBestMove = move;
+                }
+                if (score > alpha) {
+                    alpha = score;
+                    if (score >= beta) {
+                        if (!PackedMove.isCapture(move) && !PackedMove.isPromotion(move)) {
+                            updateQuietHeuristics(ply, move, depth);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+
+        if (transpositionTable != null) {
+            int bound = bestScore >= beta ? TranspositionTable.LOWER
+                    : bestScore > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+            transpositionTable.store(key, bound == TranspositionTable.UPPER ? PackedMove.NONE : bestMove,
+                    toTable(bestScore, ply), depth, bound);
+        }
+        return bestScore;
+    }
+
+    // Mate scores are stored relative to the node rather than the root, so they stay valid at any ply
+    private static int toTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) return score + ply;
+        if (score <= -MATE + MAX_PLY) return score - ply;
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) return score - ply;
+        if (score <= -MATE + MAX_PLY) return score + ply;
+        return score;
+    }
+
+    // Captures and promotions only, until the position is quiet; all evasions when in check
+    private int quiescence(int ply, int alpha, int beta) {
+        if ((++nodes & CHECK_INTERVAL) == 0) {
+            checkLimits();
+        }
+        if (stopped) return 0;
+        if (ply >= MAX_PLY) {
+            return Evaluator.evaluate(position, pawnTable);
+        }
+
+        boolean inCheck = position.isInCheck();
+        int bestScore = -INFINITY;
+        if (!inCheck) {
+            int standPat = Evaluator.evaluate(position, pawnTable);
+            if (standPat >= beta) {
+                return standPat;
+            }
+            alpha = Math.max(alpha, standPat);
+            bestScore = standPat;
+        }
+
+        int count = position.generateLegalMoves(moves[ply]);
+        if (count == 0) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        scoreMoves(ply, count, PackedMove.NONE);
+
+        for (int i = 0; i < count; i++) {
+            int move = pickNext(ply, i, count);
+            if (!inCheck && !PackedMove.isCapture(move) && !PackedMove.isPromotion(move)) {
+                // Moves are ordered, so every remaining one is quiet as well
+                break;
+            }
+            position.makeMove(move);
+            int score = -quiescence(ply + 1, -beta, -alpha);
+            position.unmakeMove();
+            if (stopped) return 0;
+
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                    if (score >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return bestScore;
+    }
+
+    private void checkLimits() {
+        // The first iteration always completes so there is a move to return
+        if (completedDepth > 0 && (nodes >= nodeLimit || System.nanoTime() >= deadline)) {
+            stopped = true;
+        }
+    }
+
+    // Best move first, then captures by most valuable victim / least valuable attacker,
+    // promotions, killer moves, and quiet moves by history
+    private void scoreMoves(int ply, int count, int bestMove) {
+        int[] list = moves[ply];
+        int[] scores = moveScores[ply];
+        int side = position.sideToMove();
+        for (int i = 0; i < count; i++) {
+            int move = list[i];
+            int score;
+            if (move == bestMove) {
+                score = BEST_MOVE_SCORE;
+            } else if (PackedMove.isCapture(move)) {
+                int victim = PackedMove.flag(move) == PackedMove.EP_CAPTURE
+                        ? PAWN : Piece.type(position.pieceOn(PackedMove.to(move)));
+                int attacker = Piece.type(position.pieceOn(PackedMove.from(move)));
+                score = CAPTURE_SCORE + victim * 10 - attacker;
+                if (PackedMove.isPromotion(move)) {
+                    score += PackedMove.promotionType(move) * 10;
+                }
+            } else if (PackedMove.isPromotion(move)) {
+                score = PROMOTION_SCORE + PackedMove.promotionType(move);
+            } else if (move == killers[ply][0]) {
+                score = KILLER_SCORE + 1;
+            } else if (move == killers[ply][1]) {
+                score = KILLER_SCORE;
+            } else {
+                score = history[historyIndex(side, move)];
+            }
+            scores[i] = score;
+        }
+    }
+
+    // Selection sort step: swaps the best remaining move into slot i and returns it
+    private int pickNext(int ply, int i, int count) {
+        int[] list = moves[ply];
+        int[] scores = moveScores[ply];
+        int best = i;
+        for (int j = i + 1; j < count; j++) {
+            if (scores[j] > scores[best]) {
+                best = j;
+            }
+        }
+        if (best != i) {
+            int move = list[i];
+            list[i] = list[best];
+            list[best] = move;
+            int score = scores[i];
+            scores[i] = scores[best];
+            scores[best] = score;
+        }
+        return list[i];
+    }
+
+    private void updateQuietHeuristics(int ply, int move, int depth) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int index = historyIndex(position.sideToMove(), move);
+        history[index] += depth * depth;
+        if (history[index] > HISTORY_LIMIT) {
+            for (int i = 0; i < history.length; i++) {
+                history[i] >>= 1;
+            }
+        }
+    }
+
+    private static int historyIndex(int side, int move) {
+        return (side << 12) | (move & 0xFFF);
+    }
+
+    private void clearHeuristics() {
+        for (int[] k : killers) {
+            k[0] = PackedMove.NONE;
+            k[1] = PackedMove.NONE;
+        }
+        Arrays.fill(history, 0);
+    }
+
+    public static class Result {
+        private final int bestMove;
+        private final int score;
+        private final int depth;
+        private final long nodes;
+        private final long nanos;
+
+        Result(int bestMove, int score, int depth, long nodes, long nanos) {
+            this.bestMove = bestMove;
+            this.score = score;
+            this.depth = depth;
+            this.nodes = nodes;
+            this.nanos = nanos;
+        }
+
+        public int getBestMove() { return bestMove; }
+        public int getScore() { return score; }
+        public int getDepth() { return depth; }
+        public long getNodes() { return nodes; }
+        public long getNanos() { return nanos; }
+
+        // Best move in UCI notation, or null when the position has no legal moves
+        public String getBestMoveUci() {
+            return bestMove == PackedMove.NONE ? null : PackedMove.toUci(bestMove);
+        }
+
+        public boolean isMate() {
+            return Math.abs(score) >= MATE - MAX_PLY;
+        }
+
+        // Moves (not plies) to mate, negative when being mated; 0 when the score is not a mate
+        public int getMateIn() {
+            if (!isMate()) return 0;
+            int plies = MATE - Math.abs(score);
+            return score > 0 ? (plies + 1) / 2 : -(plies + 1) / 2;
+        }
+
+        public long getNodesPerSecond() {
+            return nanos == 0 ? 0 : nodes * 1_000_000_000L / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return "bestmove " + getBestMoveUci() + " score " + (isMate() ? "mate " + getMateIn() : "cp " + score)
+                    + " depth " + depth + " nodes " + nodes + " nps " + getNodesPerSecond();
+        }
+    }
+}
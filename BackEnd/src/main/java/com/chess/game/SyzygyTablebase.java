@@ -0,0 +1,889 @@
+package com.chess.game;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import static com.chess.game.Piece.*;
+
+// Syzygy WDL (.rtbw) and DTZ (.rtbz) probing from local files, following the reference probing code.
+// Each table file is memory-mapped read-only the first time a position needs it and kept for the life of the
+// process, so all games and threads read through the same mapping and the OS page cache.
+//
+// WDL is win/draw/loss from the side to move's point of view, with "cursed" wins and "blessed" losses being
+// results the fifty-move rule turns into draws. DTZ is the distance in plies to the next capture or pawn
+// move (zeroing move) on the way to that result, signed like WDL.
+public class SyzygyTablebase {
+    public static final int LOSS = -2;
+    public static final int BLESSED_LOSS = -1;
+    public static final int DRAW = 0;
+    public static final int CURSED_WIN = 1;
+    public static final int WIN = 2;
+    // Position not covered (too many pieces, castling rights, missing or unreadable file)
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+
+    private static final String WDL_SUFFIX = ".rtbw";
+    private static final String DTZ_SUFFIX = ".rtbz";
+    private static final int WDL_MAGIC = 0x5D23E871;
+    private static final int DTZ_MAGIC = 0xA50C66D7;
+
+    // Probe states
+    private static final int OK = 0;
+    private static final int FAIL = 1;
+    private static final int ZEROING_BEST_MOVE = 2;
+    private static final int CHANGE_STM = 3;
+
+    // Per-table flags
+    private static final int FLAG_STM = 1;
+    private static final int FLAG_MAPPED = 2;
+    private static final int FLAG_WIN_PLIES = 4;
+    private static final int FLAG_LOSS_PLIES = 8;
+    private static final int FLAG_WIDE = 16;
+    private static final int FLAG_SINGLE_VALUE = 128;
+
+    private static final int MAX_PIECES = 7;
+
+    // Index encoding tables, built once as in the reference implementation
+    private static final int[] MAP_B1H1H7 = new int[64];
+    private static final int[] MAP_A1D1D4 = new int[64];
+    private static final int[][] MAP_KK = new int[10][64];
+    private static final long[][] BINOMIAL = new long[MAX_PIECES][64];
+    private static final int[] MAP_PAWNS = new int[64];
+    private static final long[][] LEAD_PAWN_IDX = new long[6][64];
+    private static final long[][] LEAD_PAWNS_SIZE = new long[6][4];
+
+    static {
+        int code = 0;
+        for (int s = 0; s < 64; s++) {
+            if (offA1H8(s) < 0) MAP_B1H1H7[s] = code++;
+        }
+
+        code = 0;
+        int[] diagonal = new int[4];
+        int diagonalCount = 0;
+        for (int s = 0; s <= 27; s++) {
+            if (offA1H8(s) < 0 && Bitboards.file(s) <= 3) {
+                MAP_A1D1D4[s] = code++;
+            } else if (offA1H8(s) == 0 && Bitboards.file(s) <= 3) {
+                diagonal[diagonalCount++] = s;
+            }
+        }
+        for (int i = 0; i < diagonalCount; i++) {
+            MAP_A1D1D4[diagonal[i]] = code++;
+        }
+
+        // The 462 placements of two kings with the first in the a1-d1-d4 triangle; with the first king on the
+        // diagonal the second may not be above it, and positions with both on the diagonal come last
+        code = 0;
+        int[][] bothOnDiagonal = new int[64][2];
+        int bothCount = 0;
+        for (int idx = 0; idx < 10; idx++) {
+            for (int s1 = 0; s1 <= 27; s1++) {
+                if (MAP_A1D1D4[s1] != idx || (idx == 0 && s1 != 1)) continue;
+                for (int s2 = 0; s2 < 64; s2++) {
+                    if (((Bitboards.kingAttacks(s1) | Bitboards.bit(s1)) & Bitboards.bit(s2)) != 0) continue;
+                    if (offA1H8(s1) == 0 && offA1H8(s2) > 0) continue;
+                    if (offA1H8(s1) == 0 && offA1H8(s2) == 0) {
+                        bothOnDiagonal[bothCount][0] = idx;
+                        bothOnDiagonal[bothCount++][1] = s2;
+                    } else {
+                        MAP_KK[idx][s2] = code++;
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < bothCount; i++) {
+            MAP_KK[bothOnDiagonal[i][0]][bothOnDiagonal[i][1]] = code++;
+        }
+
+        BINOMIAL[0][0] = 1;
+        for (int n = 1; n < 64; n++) {
+            for (int k = 0; k < MAX_PIECES && k <= n; k++) {
+                BINOMIAL[k][n] = (k > 0 ? BINOMIAL[k - 1][n - 1] : 0) + (k < n ? BINOMIAL[k][n - 1] : 0);
+            }
+        }
+
+        // MAP_PAWNS numbers a2-h7 so the leading pawn (nearest the edge, then lowest rank) has the highest value
+        int availableSquares = 47;
+        for (int leadPawnsCount = 1; leadPawnsCount <= 5; leadPawnsCount++) {
+            for (int f = 0; f <= 3; f++) {
+                long idx = 0;
+                for (int r = 1; r <= 6; r++) {
+                    int sq = r * 8 + f;
+                    if (leadPawnsCount == 1) {
+                        MAP_PAWNS[sq] = availableSquares--;
+                        MAP_PAWNS[sq ^ 7] = availableSquares--;
+                    }
+                    LEAD_PAWN_IDX[leadPawnsCount][sq] = idx;
+                    idx += BINOMIAL[leadPawnsCount - 1][MAP_PAWNS[sq]];
+                }
+                LEAD_PAWNS_SIZE[leadPawnsCount][f] = idx;
+            }
+        }
+    }
+
+    // Table name ("KRvKP") to file, per kind
+    private final Map<String, Path> wdlFiles = new HashMap<>();
+    private final Map<String, Path> dtzFiles = new HashMap<>();
+    private final Map<String, Table> wdlTables = new ConcurrentHashMap<>();
+    private final Map<String, Table> dtzTables = new ConcurrentHashMap<>();
+    private int maxPieces;
+
+    // Scans the directories (separated by the platform path separator) for table files; nothing is mapped yet
+    public SyzygyTablebase(String paths) {
+        if (paths == null || paths.isBlank()) return;
+        for (String dir : paths.split(File.pathSeparator)) {
+            if (dir.isBlank()) continue;
+            try (Stream<Path> files = Files.list(Path.of(dir.trim()))) {
+                files.forEach(file -> {
+                    String name = file.getFileName().toString();
+                    if (name.endsWith(WDL_SUFFIX)) {
+                        register(wdlFiles, name.substring(0, name.length() - WDL_SUFFIX.length()), file);
+                    } else if (name.endsWith(DTZ_SUFFIX)) {
+                        register(dtzFiles, name.substring(0, name.length() - DTZ_SUFFIX.length()), file);
+                    }
+                });
+            } catch (IOException e) {
+                System.err.println("Could not read Syzygy directory " + dir + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void register(Map<String, Path> files, String name, Path file) {
+        if (!name.matches("K[QRBNP]*vK[QRBNP]*") || name.length() - 1 > MAX_PIECES) return;
+        files.putIfAbsent(name, file);
+        maxPieces = Math.max(maxPieces, name.length() - 1);
+    }
+
+    public int getMaxPieces() {
+        return maxPieces;
+    }
+
+    public int getTableCount() {
+        return wdlFiles.size() + dtzFiles.size();
+    }
+
+    public boolean covers(ChessEngine position) {
+        return position.castlingRights() == 0
+                && Long.bitCount(position.colorBitboard(WHITE) | position.colorBitboard(BLACK)) <= maxPieces;
+    }
+
+    // WDL for the side to move, or UNKNOWN
+    public int probeWdl(ChessEngine position) {
+        if (!covers(position)) return UNKNOWN;
+        int[] state = {OK};
+        int wdl = search(position, false, state);
+        return state[0] == FAIL ? UNKNOWN : wdl;
+    }
+
+    // Signed plies to the next zeroing move on the way to the WDL result, 0 for draws, or UNKNOWN
+    public int probeDtz(ChessEngine position) {
+        if (!covers(position)) return UNKNOWN;
+        int[] state = {OK};
+        int dtz = probeDtz(position, state);
+        return state[0] == FAIL ? UNKNOWN : dtz;
+    }
+
+    // The move that keeps the best result and, within it, wins fastest or loses slowest; NONE when not covered
+    public int bestMove(ChessEngine position) {
+        if (!covers(position)) return PackedMove.NONE;
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = position.generateLegalMoves(moves);
+        int bestMove = PackedMove.NONE;
+        long bestRank = Long.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            position.makeMove(moves[i]);
+            int childWdl = probeWdl(position);
+            int childDtz = childWdl == UNKNOWN ? UNKNOWN : probeDtz(position);
+            position.unmakeMove();
+            if (childWdl == UNKNOWN) return PackedMove.NONE;
+
+            // Without the DTZ file the move still keeps the result, just not by the shortest route
+            int wdl = -childWdl;
+            int distance = childDtz == UNKNOWN ? 0 : Math.abs(childDtz);
+            long rank = wdl * 10_000L + (wdl > 0 ? -distance : wdl < 0 ? distance : 0);
+            if (rank > bestRank) {
+                bestRank = rank;
+                bestMove = moves[i];
+            }
+        }
+        return bestMove;
+    }
+
+    // Resolves captures (and, for DTZ, pawn moves) first, since the tables only hold the result assuming
+    // the best zeroing move is not better than the stored value, and hold nothing for en passant positions
+    private int search(ChessEngine position, boolean checkZeroingMoves, int[] state) {
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int totalCount = position.generateLegalMoves(moves);
+        if (totalCount == 0) {
+            state[0] = ZEROING_BEST_MOVE;
+            return position.isInCheck() ? LOSS : DRAW;
+        }
+
+        int bestValue = LOSS;
+        int moveCount = 0;
+        for (int i = 0; i < totalCount; i++) {
+            int move = moves[i];
+            if (!PackedMove.isCapture(move)
+                    && (!checkZeroingMoves || Piece.type(position.pieceOn(PackedMove.from(move))) != PAWN)) {
+                continue;
+            }
+            moveCount++;
+            position.makeMove(move);
+            int value = -search(position, false, state);
+            position.unmakeMove();
+            if (state[0] == FAIL) return DRAW;
+
+            if (value > bestValue) {
+                bestValue = value;
+                if (value >= WIN) {
+                    state[0] = ZEROING_BEST_MOVE;
+                    return value;
+                }
+            }
+        }
+
+        boolean noMoreMoves = moveCount == totalCount;
+        int value;
+        if (noMoreMoves) {
+            value = bestValue;
+        } else {
+            value = probeTable(position, false, 0, state);
+            if (state[0] == FAIL) return DRAW;
+        }
+
+        // The DTZ table stores a "don't care" value when the best zeroing move is at least as good
+        if (bestValue >= value) {
+            state[0] = bestValue > DRAW || noMoreMoves ? ZEROING_BEST_MOVE : OK;
+            return bestValue;
+        }
+        state[0] = OK;
+        return value;
+    }
+
+    private int probeDtz(ChessEngine position, int[] state) {
+        state[0] = OK;
+        int wdl = search(position, true, state);
+        if (state[0] == FAIL || wdl == DRAW) return 0;
+        if (state[0] == ZEROING_BEST_MOVE) return dtzBeforeZeroing(wdl);
+
+        int dtz = probeTable(position, true, wdl, state);
+        if (state[0] == FAIL) return 0;
+        if (state[0] != CHANGE_STM) {
+            return (dtz + 100 * (wdl == BLESSED_LOSS || wdl == CURSED_WIN ? 1 : 0)) * Integer.signum(wdl);
+        }
+
+        // The DTZ table only stores the other side to move: search one ply and take the best child
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = position.generateLegalMoves(moves);
+        int minDtz = 0xFFFF;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            boolean zeroing = PackedMove.isCapture(move) || Piece.type(position.pieceOn(PackedMove.from(move))) == PAWN;
+            position.makeMove(move);
+            dtz = zeroing ? -dtzBeforeZeroing(search(position, false, state)) : -probeDtz(position, state);
+            if (dtz == 1 && position.isInCheck() && position.generateLegalMoves(new int[MoveGenerator.MAX_MOVES]) == 0) {
+                minDtz = 1;
+            }
+            if (!zeroing) {
+                dtz += Integer.signum(dtz);
+            }
+            if (dtz < minDtz && Integer.signum(dtz) == Integer.signum(wdl)) {
+                minDtz = dtz;
+            }
+            position.unmakeMove();
+            if (state[0] == FAIL) return 0;
+        }
+        return minDtz == 0xFFFF ? -1 : minDtz;
+    }
+
+    private static int dtzBeforeZeroing(int wdl) {
+        switch (wdl) {
+            case WIN: return 1;
+            case CURSED_WIN: return 101;
+            case BLESSED_LOSS: return -101;
+            case LOSS: return -1;
+            default: return 0;
+        }
+    }
+
+    private int probeTable(ChessEngine position, boolean dtz, int wdl, int[] state) {
+        long occupied = position.colorBitboard(WHITE) | position.colorBitboard(BLACK);
+        if (Long.bitCount(occupied) == 2) {
+            return DRAW;
+        }
+
+        String white = materialName(position, WHITE);
+        String black = materialName(position, BLACK);
+        String name = white + "v" + black;
+        boolean blackStronger = false;
+        Table table = table(name, dtz);
+        if (table == null) {
+            name = black + "v" + white;
+            blackStronger = true;
+            table = table(name, dtz);
+        }
+        if (table == null) {
+            state[0] = FAIL;
+            return 0;
+        }
+        return table.probe(position, blackStronger, wdl, state);
+    }
+
+    private Table table(String name, boolean dtz) {
+        Map<String, Path> files = dtz ? dtzFiles : wdlFiles;
+        Path file = files.get(name);
+        if (file == null) return null;
+        Table table = (dtz ? dtzTables : wdlTables).computeIfAbsent(name, n -> Table.load(file, n, dtz));
+        return table.ok ? table : null;
+    }
+
+    // "KRP" for a side with king, rook and pawn: pieces in Syzygy order K Q R B N P
+    private static String materialName(ChessEngine position, int color) {
+        StringBuilder name = new StringBuilder("K");
+        for (int type = QUEEN; type >= PAWN; type--) {
+            int count = Long.bitCount(position.pieceBitboard(color, type));
+            char c = Character.toUpperCase(Piece.typeChar(type));
+            for (int i = 0; i < count; i++) {
+                name.append(c);
+            }
+        }
+        return name.toString();
+    }
+
+    private static int offA1H8(int sq) {
+        return Bitboards.rank(sq) - Bitboards.file(sq);
+    }
+
+    // Reference piece codes: type + 1, plus 8 for black
+    private static int pieceCode(int piece) {
+        return Piece.type(piece) + 1 + (Piece.color(piece) == BLACK ? 8 : 0);
+    }
+
+    // One table file: header parsed on load, values decoded straight from the mapping on every probe
+    private static final class Table {
+        final String name;
+        final boolean dtz;
+        final boolean ok;
+        final int pieceCount;
+        final boolean hasPawns;
+        final boolean hasUniquePieces;
+        final boolean symmetric;
+        final int[] pawnCount = new int[2];
+        final PairsData[][] items = new PairsData[2][4];
+        ByteBuffer le;
+        ByteBuffer be;
+        int map;
+
+        private Table(String name, boolean dtz, boolean ok) {
+            this.name = name;
+            this.dtz = dtz;
+            this.ok = ok;
+            int[][] counts = new int[2][6];
+            String[] sides = name.split("v");
+            for (int color = 0; color < 2; color++) {
+                for (char c : sides[color].toCharArray()) {
+                    counts[color][Piece.typeOf(c)]++;
+                }
+            }
+            this.pieceCount = name.length() - 1;
+            this.hasPawns = counts[WHITE][PAWN] + counts[BLACK][PAWN] > 0;
+            boolean unique = false;
+            for (int color = 0; color < 2; color++) {
+                for (int type = PAWN; type < KING; type++) {
+                    unique |= counts[color][type] == 1;
+                }
+            }
+            this.hasUniquePieces = unique;
+            this.symmetric = sides[0].equals(sides[1]);
+            // The leading color is the side with fewer pawns, as that compresses better
+            boolean whiteLeads = counts[BLACK][PAWN] == 0
+                    || (counts[WHITE][PAWN] > 0 && counts[BLACK][PAWN] >= counts[WHITE][PAWN]);
+            pawnCount[0] = counts[whiteLeads ? WHITE : BLACK][PAWN];
+            pawnCount[1] = counts[whiteLeads ? BLACK : WHITE][PAWN];
+        }
+
+        static Table load(Path file, String name, boolean dtz) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                if (channel.size() > Integer.MAX_VALUE) {
+                    throw new IOException("file too large to map");
+                }
+                ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                Table table = new Table(name, dtz, true);
+                table.le = mapped.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+                table.be = mapped.duplicate().order(ByteOrder.BIG_ENDIAN);
+                if (table.le.getInt(0) != (dtz ? DTZ_MAGIC : WDL_MAGIC)) {
+                    throw new IOException("bad magic number");
+                }
+                table.parse();
+                System.out.println("Mapped Syzygy table " + file);
+                return table;
+            } catch (Exception e) {
+                System.err.println("Could not load Syzygy table " + file + ": " + e.getMessage());
+                return new Table(name, dtz, false);
+            }
+        }
+
+        private int u8(int offset) {
+            return le.get(offset) & 0xFF;
+        }
+
+        private int u16(int offset) {
+            return le.getShort(offset) & 0xFFFF;
+        }
+
+        private void parse() throws IOException {
+            int p = 4;
+            int flags = u8(p);
+            if (((flags & 2) != 0) != hasPawns || ((flags & 1) != 0) == symmetric) {
+                throw new IOException("header does not match the table name");
+            }
+            p++;
+
+            int sides = !dtz && !symmetric ? 2 : 1;
+            int maxFile = hasPawns ? 3 : 0;
+            boolean pawnsOnBothSides = hasPawns && pawnCount[1] > 0;
+
+            for (int f = 0; f <= maxFile; f++) {
+                for (int i = 0; i < sides; i++) {
+                    items[i][f] = new PairsData();
+                }
+                int[][] order = {
+                    {u8(p) & 0xF, pawnsOnBothSides ? u8(p + 1) & 0xF : 0xF},
+                    {u8(p) >>> 4, pawnsOnBothSides ? u8(p + 1) >>> 4 : 0xF}
+                };
+                p += 1 + (pawnsOnBothSides ? 1 : 0);
+                for (int k = 0; k < pieceCount; k++, p++) {
+                    for (int i = 0; i < sides; i++) {
+                        items[i][f].pieces[k] = i == 1 ? u8(p) >>> 4 : u8(p) & 0xF;
+                    }
+                }
+                for (int i = 0; i < sides; i++) {
+                    setGroups(items[i][f], order[i], f);
+                }
+            }
+            p += p & 1;
+
+            for (int f = 0; f <= maxFile; f++) {
+                for (int i = 0; i < sides; i++) {
+                    p = setSizes(items[i][f], p);
+                }
+            }
+            if (dtz) {
+                p = setDtzMap(p, maxFile);
+            }
+            for (int f = 0; f <= maxFile; f++) {
+                for (int i = 0; i < sides; i++) {
+                    items[i][f].sparseIndex = p;
+                    p += (int) (items[i][f].sparseIndexSize * 6);
+                }
+            }
+            for (int f = 0; f <= maxFile; f++) {
+                for (int i = 0; i < sides; i++) {
+                    items[i][f].blockLength = p;
+                    p += (int) (items[i][f].blockLengthSize * 2);
+                }
+            }
+            for (int f = 0; f <= maxFile; f++) {
+                for (int i = 0; i < sides; i++) {
+                    p = (p + 0x3F) & ~0x3F;
+                    items[i][f].data = p;
+                    p += (int) (items[i][f].blocksNum * items[i][f].sizeofBlock);
+                }
+            }
+        }
+
+        // Splits the piece sequence into groups encoded together and computes each group's index multiplier
+        private void setGroups(PairsData d, int[] order, int f) {
+            int n = 0;
+            int firstLen = hasPawns ? 0 : hasUniquePieces ? 3 : 2;
+            d.groupLen[n] = 1;
+            for (int i = 1; i < pieceCount; i++) {
+                if (--firstLen > 0 || d.pieces[i] == d.pieces[i - 1]) {
+                    d.groupLen[n]++;
+                } else {
+                    d.groupLen[++n] = 1;
+                }
+            }
+            d.groupLen[++n] = 0;
+
+            boolean pawnsOnBothSides = hasPawns && pawnCount[1] > 0;
+            int next = pawnsOnBothSides ? 2 : 1;
+            int freeSquares = 64 - d.groupLen[0] - (pawnsOnBothSides ? d.groupLen[1] : 0);
+            long idx = 1;
+            for (int k = 0; next < n || k == order[0] || k == order[1]; k++) {
+                if (k == order[0]) {
+                    d.groupIdx[0] = idx;
+                    idx *= hasPawns ? LEAD_PAWNS_SIZE[d.groupLen[0]][f] : hasUniquePieces ? 31332 : 462;
+                } else if (k == order[1]) {
+                    d.groupIdx[1] = idx;
+                    idx *= BINOMIAL[d.groupLen[1]][48 - d.groupLen[0]];
+                } else {
+                    d.groupIdx[next] = idx;
+                    idx *= BINOMIAL[d.groupLen[next]][freeSquares];
+                    freeSquares -= d.groupLen[next++];
+                }
+            }
+            d.groupIdx[n] = idx;
+        }
+
+        // Reads the canonical Huffman code description and the recursive-pairing symbol tree
+        private int setSizes(PairsData d, int p) {
+            d.flags = u8(p++);
+            if ((d.flags & FLAG_SINGLE_VALUE) != 0) {
+                d.minSymLen = u8(p++);
+                return p;
+            }
+
+            int groups = 0;
+            while (groups < 7 && d.groupLen[groups] != 0) groups++;
+            long tbSize = d.groupIdx[groups];
+            d.sizeofBlock = 1L << u8(p++);
+            d.span = 1L << u8(p++);
+            d.sparseIndexSize = (tbSize + d.span - 1) / d.span;
+            int padding = u8(p++);
+            d.blocksNum = le.getInt(p) & 0xFFFFFFFFL;
+            p += 4;
+            d.blockLengthSize = d.blocksNum + padding;
+            d.maxSymLen = u8(p++);
+            d.minSymLen = u8(p++);
+            d.lowestSym = p;
+
+            // base64[i] is the smallest left-aligned 64-bit code of length minSymLen + i
+            int lengths = d.maxSymLen - d.minSymLen + 1;
+            d.base64 = new long[lengths];
+            for (int i = lengths - 2; i >= 0; i--) {
+                d.base64[i] = (d.base64[i + 1] + u16(d.lowestSym + 2 * i) - u16(d.lowestSym + 2 * (i + 1))) >>> 1;
+            }
+            for (int i = 0; i < lengths; i++) {
+                d.base64[i] <<= 64 - i - d.minSymLen;
+            }
+            p += lengths * 2;
+
+            int symbols = u16(p);
+            p += 2;
+            d.symlen = new int[symbols];
+            d.btree = p;
+            boolean[] visited = new boolean[symbols];
+            for (int s = 0; s < symbols; s++) {
+                if (!visited[s]) {
+                    d.symlen[s] = setSymlen(d, s, visited);
+                }
+            }
+            return p + symbols * 3 + (symbols & 1);
+        }
+
+        // Number of values a symbol expands to, minus one
+        private int setSymlen(PairsData d, int s, boolean[] visited) {
+            visited[s] = true;
+            int right = right(d, s);
+            if (right == 0xFFF) return 0;
+            int left = left(d, s);
+            if (!visited[left]) d.symlen[left] = setSymlen(d, left, visited);
+            if (!visited[right]) d.symlen[right] = setSymlen(d, right, visited);
+            return d.symlen[left] + d.symlen[right] + 1;
+        }
+
+        private int left(PairsData d, int s) {
+            int offset = d.btree + 3 * s;
+            return ((u8(offset + 1) & 0xF) << 8) | u8(offset);
+        }
+
+        private int right(PairsData d, int s) {
+            int offset = d.btree + 3 * s;
+            return (u8(offset + 2) << 4) | (u8(offset + 1) >>> 4);
+        }
+
+        private int setDtzMap(int p, int maxFile) {
+            map = p;
+            for (int f = 0; f <= maxFile; f++) {
+                PairsData d = items[0][f];
+                if ((d.flags & FLAG_MAPPED) == 0) continue;
+                if ((d.flags & FLAG_WIDE) != 0) {
+                    p += p & 1;
+                    for (int i = 0; i < 4; i++) {
+                        d.mapIdx[i] = (p - map) / 2 + 1;
+                        p += 2 * u16(p) + 2;
+                    }
+                } else {
+                    for (int i = 0; i < 4; i++) {
+                        d.mapIdx[i] = p - map + 1;
+                        p += u8(p) + 1;
+                    }
+                }
+            }
+            return p + (p & 1);
+        }
+
+        int probe(ChessEngine position, boolean blackStronger, int wdl, int[] state) {
+            int[] squares = new int[MAX_PIECES];
+            int[] pieces = new int[MAX_PIECES];
+            int size = 0;
+            int leadPawnsCount = 0;
+            long leadPawns = 0;
+            int tbFile = 0;
+
+            // Tables are built with white as the stronger side, and symmetric ones only with white to move,
+            // so otherwise colors are swapped and the board flipped vertically
+            boolean flip = (symmetric && position.sideToMove() == BLACK) || blackStronger;
+            int flipColor = flip ? 8 : 0;
+            int flipSquares = flip ? 56 : 0;
+            int stm = (flip ? 1 : 0) ^ position.sideToMove();
+
+            if (hasPawns) {
+                int leadColor = ((items[0][0].pieces[0] ^ flipColor) >>> 3) & 1;
+                leadPawns = position.pieceBitboard(leadColor, PAWN);
+                for (long b = leadPawns; b != 0; b &= b - 1) {
+                    squares[size++] = Long.numberOfTrailingZeros(b) ^ flipSquares;
+                }
+                leadPawnsCount = size;
+                int lead = 0;
+                for (int i = 1; i < leadPawnsCount; i++) {
+                    if (MAP_PAWNS[squares[i]] > MAP_PAWNS[squares[lead]]) lead = i;
+                }
+                swap(squares, 0, lead);
+                tbFile = Bitboards.file(squares[0]);
+                if (tbFile > 3) tbFile = Bitboards.file(squares[0] ^ 7);
+            }
+
+            if (dtz && (items[0][tbFile].flags & FLAG_STM) != stm && !(symmetric && !hasPawns)) {
+                state[0] = CHANGE_STM;
+                return 0;
+            }
+
+            long rest = (position.colorBitboard(WHITE) | position.colorBitboard(BLACK)) ^ leadPawns;
+            for (long b = rest; b != 0; b &= b - 1) {
+                int sq = Long.numberOfTrailingZeros(b);
+                squares[size] = sq ^ flipSquares;
+                pieces[size++] = pieceCode(position.pieceOn(sq)) ^ flipColor;
+            }
+
+            PairsData d = items[dtz ? 0 : stm][tbFile];
+
+            // Put the pieces in the order the table encodes them
+            for (int i = leadPawnsCount; i < size - 1; i++) {
+                for (int j = i + 1; j < size; j++) {
+                    if (d.pieces[i] == pieces[j]) {
+                        swap(pieces, i, j);
+                        swap(squares, i, j);
+                        break;
+                    }
+                }
+            }
+
+            // Mirror so the leading piece is on files a-d
+            if (Bitboards.file(squares[0]) > 3) {
+                for (int i = 0; i < size; i++) squares[i] ^= 7;
+            }
+
+            long idx;
+            if (hasPawns) {
+                idx = LEAD_PAWN_IDX[leadPawnsCount][squares[0]];
+                sortByPawnMap(squares, 1, leadPawnsCount);
+                for (int i = 1; i < leadPawnsCount; i++) {
+                    idx += BINOMIAL[i][MAP_PAWNS[squares[i]]];
+                }
+            } else {
+                // Without pawns, also mirror to ranks 1-4 and below the a1-h8 diagonal
+                if (Bitboards.rank(squares[0]) > 3) {
+                    for (int i = 0; i < size; i++) squares[i] ^= 56;
+                }
+                for (int i = 0; i < d.groupLen[0]; i++) {
+                    if (offA1H8(squares[i]) == 0) continue;
+                    if (offA1H8(squares[i]) > 0) {
+                        for (int j = i; j < size; j++) {
+                            squares[j] = ((squares[j] >>> 3) | (squares[j] << 3)) & 63;
+                        }
+                    }
+                    break;
+                }
+
+                if (hasUniquePieces) {
+                    int adjust1 = squares[1] > squares[0] ? 1 : 0;
+                    int adjust2 = (squares[2] > squares[0] ? 1 : 0) + (squares[2] > squares[1] ? 1 : 0);
+                    if (offA1H8(squares[0]) != 0) {
+                        idx = (MAP_A1D1D4[squares[0]] * 63L + (squares[1] - adjust1)) * 62 + squares[2] - adjust2;
+                    } else if (offA1H8(squares[1]) != 0) {
+                        idx = (6 * 63L + Bitboards.rank(squares[0]) * 28 + MAP_B1H1H7[squares[1]]) * 62
+                                + squares[2] - adjust2;
+                    } else if (offA1H8(squares[2]) != 0) {
+                        idx = 6 * 63 * 62 + 4 * 28 * 62
+                                + Bitboards.rank(squares[0]) * 7 * 28
+                                + (Bitboards.rank(squares[1]) - adjust1) * 28
+                                + MAP_B1H1H7[squares[2]];
+                    } else {
+                        idx = 6 * 63 * 62 + 4 * 28 * 62 + 4 * 7 * 28
+                                + Bitboards.rank(squares[0]) * 7 * 6
+                                + (Bitboards.rank(squares[1]) - adjust1) * 6
+                                + (Bitboards.rank(squares[2]) - adjust2);
+                    }
+                } else {
+                    idx = MAP_KK[MAP_A1D1D4[squares[0]]][squares[1]];
+                }
+            }
+
+            // Remaining groups: combinations of their squares, skipping squares taken by earlier groups
+            idx *= d.groupIdx[0];
+            int groupStart = d.groupLen[0];
+            boolean remainingPawns = hasPawns && pawnCount[1] > 0;
+            int next = 0;
+            while (d.groupLen[++next] != 0) {
+                int len = d.groupLen[next];
+                Arrays.sort(squares, groupStart, groupStart + len);
+                long n = 0;
+                for (int i = 0; i < len; i++) {
+                    int sq = squares[groupStart + i];
+                    int adjust = 0;
+                    for (int j = 0; j < groupStart; j++) {
+                        if (sq > squares[j]) adjust++;
+                    }
+                    n += BINOMIAL[i + 1][sq - adjust - (remainingPawns ? 8 : 0)];
+                }
+                remainingPawns = false;
+                idx += n * d.groupIdx[next];
+                groupStart += len;
+            }
+
+            int value = decompressPairs(d, idx);
+            return dtz ? mapDtzScore(tbFile, value, wdl) : value - 2;
+        }
+
+        private int mapDtzScore(int tbFile, int value, int wdl) {
+            PairsData d = items[0][tbFile];
+            int flags = d.flags;
+            // Index into mapIdx by WDL: loss, blessed loss, -, cursed win, win
+            final int[] wdlMap = {1, 3, 0, 2, 0};
+            if ((flags & FLAG_MAPPED) != 0) {
+                int base = d.mapIdx[wdlMap[wdl + 2]] + value;
+                value = (flags & FLAG_WIDE) != 0 ? u16(map + 2 * base) : u8(map + base);
+            }
+            if ((wdl == WIN && (flags & FLAG_WIN_PLIES) == 0)
+                    || (wdl == LOSS && (flags & FLAG_LOSS_PLIES) == 0)
+                    || wdl == CURSED_WIN || wdl == BLESSED_LOSS) {
+                value *= 2;
+            }
+            return value + 1;
+        }
+
+        // Finds the block holding value number idx through the sparse index, then walks its Huffman symbols
+        private int decompressPairs(PairsData d, long idx) {
+            if ((d.flags & FLAG_SINGLE_VALUE) != 0) {
+                return d.minSymLen;
+            }
+
+            int k = (int) (idx / d.span);
+            int block = le.getInt(d.sparseIndex + 6 * k);
+            int offset = u16(d.sparseIndex + 6 * k + 4);
+            offset += (int) (idx % d.span - d.span / 2);
+
+            while (offset < 0) {
+                offset += u16(d.blockLength + 2 * --block) + 1;
+            }
+            while (offset > u16(d.blockLength + 2 * block)) {
+                offset -= u16(d.blockLength + 2 * block++) + 1;
+            }
+
+            int ptr = (int) (d.data + (long) block * d.sizeofBlock);
+            long buf64 = be.getLong(ptr);
+            ptr += 8;
+            int buf64Size = 64;
+            int sym;
+            while (true) {
+                int len = 0;
+                while (Long.compareUnsigned(buf64, d.base64[len]) < 0) {
+                    len++;
+                }
+                sym = (int) ((buf64 - d.base64[len]) >>> (64 - len - d.minSymLen));
+                sym = (sym + u16(d.lowestSym + 2 * len)) & 0xFFFF;
+                if (offset < d.symlen[sym] + 1) {
+                    break;
+                }
+                offset -= d.symlen[sym] + 1;
+                len += d.minSymLen;
+                buf64 <<= len;
+                buf64Size -= len;
+                if (buf64Size <= 32) {
+                    buf64Size += 32;
+                    buf64 |= (be.getInt(ptr) & 0xFFFFFFFFL) << (64 - buf64Size);
+                    ptr += 4;
+                }
+            }
+
+            // Expand the pair symbol down to the single value at our offset
+            while (d.symlen[sym] != 0) {
+                int left = left(d, sym);
+                if (offset < d.symlen[left] + 1) {
+                    sym = left;
+                } else {
+                    offset -= d.symlen[left] + 1;
+                    sym = right(d, sym);
+                }
+            }
+            return left(d, sym);
+        }
+
+        private static void swap(int[] a, int i, int j) {
+            int t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+        }
+
+        // Stable insertion sort by MAP_PAWNS, ascending
+        private static void sortByPawnMap(int[] squares, int from, int to) {
+            for (int i = from + 1; i < to; i++) {
+                int sq = squares[i];
+                int j = i - 1;
+                while (j >= from && MAP_PAWNS[squares[j]] > MAP_PAWNS[sq]) {
+                    squares[j + 1] = squares[j];
+                    j--;
+                }
+                squares[j + 1] = sq;
+            }
+        }
+    }
+
+    private static final class PairsData {
+        int flags;
+        final int[] pieces = new int[MAX_PIECES];
+        final int[] groupLen = new int[MAX_PIECES + 1];
+        final long[] groupIdx = new long[MAX_PIECES + 1];
+        long sizeofBlock;
+        long span;
+        long sparseIndexSize;
+        long blocksNum;
+        long blockLengthSize;
+        int maxSymLen;
+        int minSymLen;
+        int lowestSym;
+        long[] base64;
+        int[] symlen;
+        int btree;
+        int sparseIndex;
+        int blockLength;
+        int data;
+        final int[] mapIdx = new int[4];
+    }
+
+    // Exposed for tests: the index tables must match the reference sizes
+    static int kingPairCodes() {
+        int max = 0;
+        for (int[] row : MAP_KK) {
+            for (int code : row) max = Math.max(max, code);
+        }
+        return max + 1;
+    }
+
+    static long leadPawnsSize(int leadPawns, int file) {
+        return LEAD_PAWNS_SIZE[leadPawns][file];
+    }
+}
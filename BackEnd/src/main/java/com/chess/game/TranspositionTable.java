@@ -0,0 +1,125 @@
+package com.chess.game;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Fixed-size transposition table kept off-heap in a direct ByteBuffer and shared by every search thread.
+// Each 16-byte slot holds (key ^ data, data) written with plain opaque stores and no locks. A reader only
+// accepts the data when XOR-ing the two words gives back its own key, so a slot torn by two racing
+// writers reads as a miss instead of another position's entry.
+public class TranspositionTable {
+    // Bound types; never 0 so a stored entry is never the all-zero empty slot
+    public static final int EXACT = 1;
+    public static final int LOWER = 2;
+    public static final int UPPER = 3;
+
+    public static final long MISS = 0;
+
+    private static final int SLOT_BYTES = 16;
+    // ByteBuffer capacity is an int, so the largest power-of-two table is 1 GB
+    private static final int MAX_MEGABYTES = 1024;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final ByteBuffer table;
+    private final long mask;
+    private volatile int generation;
+
+    // Rounded down to a power of two between 1 MB and 1 GB
+    public TranspositionTable(int megabytes) {
+        int mb = Integer.highestOneBit(Math.max(1, Math.min(megabytes, MAX_MEGABYTES)));
+        this.table = ByteBuffer.allocateDirect(mb << 20);
+        this.mask = table.capacity() / SLOT_BYTES - 1;
+    }
+
+    // Packed entry data for this key, or MISS
+    public long probe(long key) {
+        int offset = offset(key);
+        long check = (long) LONGS.getOpaque(table, offset);
+        long data = (long) LONGS.getOpaque(table, offset + 8);
+        return data != 0 && (check ^ data) == key ? data : MISS;
+    }
+
+    // Depth-preferred replacement: an entry from the current search for another position survives a
+    // shallower result; anything older, or for the same position, is overwritten
+    public void store(long key, int move, int score, int depth, int bound) {
+        int offset = offset(key);
+        long oldCheck = (long) LONGS.getOpaque(table, offset);
+        long oldData = (long) LONGS.getOpaque(table, offset + 8);
+        boolean samePosition = (oldCheck ^ oldData) == key;
+
+        if (oldData != 0 && !samePosition && generation(oldData) == generation && depth(oldData) > depth + 2) {
+            return;
+        }
+        if (samePosition && move == PackedMove.NONE) {
+            // Keep the best move an earlier search found for this position
+            move = move(oldData);
+        }
+
+        long data = (move & 0xFFFFL)
+                | ((score & 0xFFFFL) << 16)
+                | ((long) Math.min(Math.max(depth, 0), 255) << 32)
+                | ((long) bound << 40)
+                | ((long) generation << 42);
+        LONGS.setOpaque(table, offset, key ^ data);
+        LONGS.setOpaque(table, offset + 8, data);
+    }
+
+    // Ages existing entries so the next search prefers replacing them
+    public void newSearch() {
+        generation = (generation + 1) & 63;
+    }
+
+    public void clear() {
+        for (int offset = 0; offset < table.capacity(); offset += 8) {
+            LONGS.setOpaque(table, offset, 0L);
+        }
+    }
+
+    public long getSlotCount() {
+        return mask + 1;
+    }
+
+    public int getSizeMegabytes() {
+        return table.capacity() >> 20;
+    }
+
+    // Permille of a sample of slots written during the current search, as reported by UCI "hashfull"
+    public int getHashfull() {
+        int sample = (int) Math.min(1000, mask + 1);
+        int used = 0;
+        for (int i = 0; i < sample; i++) {
+            long data = (long) LONGS.getOpaque(table, i * SLOT_BYTES + 8);
+            if (data != 0 && generation(data) == generation) {
+                used++;
+            }
+        }
+        return used * 1000 / sample;
+    }
+
+    public static int move(long data) {
+        return (int) (data & 0xFFFF);
+    }
+
+    public static int score(long data) {
+        return (short) (data >>> 16);
+    }
+
+    public static int depth(long data) {
+        return (int) ((data >>> 32) & 0xFF);
+    }
+
+    public static int bound(long data) {
+        return (int) ((data >>> 40) & 3);
+    }
+
+    private static int generation(long data) {
+        return (int) ((data >>> 42) & 63);
+    }
+
+    private int offset(long key) {
+        return (int) (key & mask) * SLOT_BYTES;
+    }
+}
@@ -0,0 +1,68 @@
+package com.chess.game;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+// Vector API kernels at the CPU's preferred width (SSE/AVX2/AVX-512 on x86, NEON on ARM).
+// Integer lanes wrap exactly like scalar Java arithmetic, so only the summation order differs from
+// ScalarNnueKernels, and integer addition does not care about order.
+final class VectorNnueKernels implements NnueKernels {
+    private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    // Shorts with as many lanes as INTS, widened to ints for the output layer
+    private static final VectorSpecies<Short> NARROW_SHORTS =
+            VectorSpecies.of(short.class, VectorShape.forBitSize(INTS.length() * Short.SIZE));
+
+    @Override
+    public void add(short[] accumulator, short[] weights, int offset) {
+        int i = 0;
+        for (int bound = SHORTS.loopBound(accumulator.length); i < bound; i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, accumulator, i)
+                    .add(ShortVector.fromArray(SHORTS, weights, offset + i))
+                    .intoArray(accumulator, i);
+        }
+        for (; i < accumulator.length; i++) {
+            accumulator[i] += weights[offset + i];
+        }
+    }
+
+    @Override
+    public void subtract(short[] accumulator, short[] weights, int offset) {
+        int i = 0;
+        for (int bound = SHORTS.loopBound(accumulator.length); i < bound; i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, accumulator, i)
+                    .sub(ShortVector.fromArray(SHORTS, weights, offset + i))
+                    .intoArray(accumulator, i);
+        }
+        for (; i < accumulator.length; i++) {
+            accumulator[i] -= weights[offset + i];
+        }
+    }
+
+    @Override
+    public int output(short[] us, short[] them, int[] weights, int max) {
+        int n = us.length;
+        IntVector sum = IntVector.zero(INTS);
+        int i = 0;
+        for (int bound = INTS.loopBound(n); i < bound; i += INTS.length()) {
+            IntVector own = widen(us, i).max(0).min(max);
+            IntVector other = widen(them, i).max(0).min(max);
+            sum = sum.add(own.mul(IntVector.fromArray(INTS, weights, i)))
+                    .add(other.mul(IntVector.fromArray(INTS, weights, n + i)));
+        }
+        int total = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < n; i++) {
+            total += Math.min(Math.max(us[i], 0), max) * weights[i];
+            total += Math.min(Math.max(them[i], 0), max) * weights[n + i];
+        }
+        return total;
+    }
+
+    private static IntVector widen(short[] values, int offset) {
+        return (IntVector) ShortVector.fromArray(NARROW_SHORTS, values, offset)
+                .convertShape(VectorOperators.S2I, INTS, 0);
+    }
+}
@@ -0,0 +1,47 @@
+package com.chess.game;
+
+import java.util.SplittableRandom;
+
+// Random keys for incremental position hashing. The seed is fixed so a position hashes
+// to the same key on every server, which lets the key be stored and shared as a cache key.
+public final class Zobrist {
+    private static final long[] PIECE_SQUARE = new long[12 * 64];
+    private static final long[] CASTLING = new long[16];
+    private static final long[] EP_FILE = new long[8];
+    public static final long SIDE_TO_MOVE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED_C4E5_5B0A_2DL);
+        for (int i = 0; i < PIECE_SQUARE.length; i++) {
+            PIECE_SQUARE[i] = random.nextLong();
+        }
+        // Each castling right gets its own key and the 16 combinations are their XOR,
+        // so losing one right changes the key the same way whatever else is left
+        long[] rightKeys = {random.nextLong(), random.nextLong(), random.nextLong(), random.nextLong()};
+        for (int rights = 0; rights < 16; rights++) {
+            for (int bit = 0; bit < 4; bit++) {
+                if ((rights & (1 << bit)) != 0) {
+                    CASTLING[rights] ^= rightKeys[bit];
+                }
+            }
+        }
+        for (int file = 0; file < 8; file++) {
+            EP_FILE[file] = random.nextLong();
+        }
+        SIDE_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {}
+
+    public static long piece(int piece, int sq) {
+        return PIECE_SQUARE[piece * 64 + sq];
+    }
+
+    public static long castling(int rights) {
+        return CASTLING[rights];
+    }
+
+    public static long enPassant(int sq) {
+        return EP_FILE[sq & 7];
+    }
+}
@@ -0,0 +1,112 @@
+package com.chess.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Engine results keyed by position, shared by hints and move classification across all games.
+// Keys drop the move clocks, so the same position reached in any game or move order hits the same entry.
+// Each position keeps only its deepest result, which then answers requests for that depth or shallower.
+// Searches restricted to one root move (searchmoves) are kept separately under the position plus that move.
+public class AnalysisCache {
+
+    private final int capacity;
+    private final LinkedHashMap<String, Entry> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public AnalysisCache(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        // Access order turns the map into an LRU list; the eldest entry goes once the cache is full
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= AnalysisCache.this.capacity) return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    // Null unless the position was searched at least this deep
+    public UciEngine.SearchResult get(String fen, int depth) {
+        return get(fen, null, depth);
+    }
+
+    public synchronized UciEngine.SearchResult get(String fen, String searchMove, int depth) {
+        Entry entry = entries.get(key(fen, searchMove));
+        if (entry != null && entry.depth >= depth) {
+            hits++;
+            return entry.result;
+        }
+        misses++;
+        return null;
+    }
+
+    // A shallower result never replaces a deeper one
+    public void put(String fen, int depth, UciEngine.SearchResult result) {
+        put(fen, null, depth, result);
+    }
+
+    public synchronized void put(String fen, String searchMove, int depth, UciEngine.SearchResult result) {
+        String key = key(fen, searchMove);
+        Entry existing = entries.get(key);
+        if (existing == null || existing.depth <= depth) {
+            entries.put(key, new Entry(result, depth));
+        }
+    }
+
+    private static String key(String fen, String searchMove) {
+        return searchMove == null ? key(fen) : key(fen) + " " + searchMove;
+    }
+
+    // Piece placement, side to move, castling rights and en passant square
+    static String key(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        if (fields.length <= 4) return String.join(" ", fields);
+        return fields[0] + " " + fields[1] + " " + fields[2] + " " + fields[3];
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(capacity, entries.size(), hits, misses, evictions);
+    }
+
+    private static class Entry {
+        private final UciEngine.SearchResult result;
+        private final int depth;
+
+        Entry(UciEngine.SearchResult result, int depth) {
+            this.result = result;
+            this.depth = depth;
+        }
+    }
+
+    public static class Stats {
+        private final int capacity;
+        private final int size;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+
+        Stats(int capacity, int size, long hits, long misses, long evictions) {
+            this.capacity = capacity;
+            this.size = size;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+        }
+
+        public int getCapacity() { return capacity; }
+        public int getSize() { return size; }
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getEvictions() { return evictions; }
+        public double getHitRate() { return hits + misses == 0 ? 0 : (double) hits / (hits + misses); }
+
+        @Override
+        public String toString() {
+            return String.format("size %d/%d, hits %d, misses %d, hit rate %.2f, evictions %d",
+                    size, capacity, hits, misses, getHitRate(), evictions);
+        }
+    }
+}
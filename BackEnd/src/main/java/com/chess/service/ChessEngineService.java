@@ -1,13 +1,27 @@
 package com.chess.service;
 
-import com.chess.game.Move;
+import com.chess.game.ChessEngine;
+import com.chess.game.PackedMove;
+import com.chess.game.PolyglotBook;
+import com.chess.game.LazySmpSearch;
+import com.chess.game.SyzygyTablebase;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Value;
 
-import java.io.*;
+import java.io.File;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class ChessEngineService {
@@ -18,69 +32,291 @@ public class ChessEngineService {
     @Value("${stockfish.analysis.depth:15}")
     private int analysisDepth;
     
+    // Positions of one game's post-game analysis queued or searching at once
+    @Value("${stockfish.analysis.window:4}")
+    private int analysisWindow;
+    
     @Value("${stockfish.hint.depth:10}")
     private int hintDepth;
     
+    // Depths up to this are searched in-process, since spawning Stockfish costs more than the search
+    @Value("${engine.inprocess.depth:4}")
+    private int inProcessDepth;
+    
+    // Budget for in-process searches; 0 means unlimited
+    @Value("${engine.search.movetime:1000}")
+    private long searchTimeMillis;
+    
+    @Value("${engine.search.nodes:0}")
+    private long searchMaxNodes;
+    
+    @Autowired
+    private LazySmpSearch lazySmpSearch;
+    
+    @Autowired
+    private PolyglotBook openingBook;
+    
+    @Autowired
+    private SyzygyTablebase tablebase;
+    
+    @Autowired
+    private UciEnginePool enginePool;
+    
+    // Longest a single Stockfish search may take before the process is treated as hung and replaced
+    @Value("${stockfish.search.timeout:30000}")
+    private long searchTimeoutMillis;
+    
+    @Value("${stockfish.eval.interval:100}")
+    private long evalIntervalMillis;
+    
+    @Autowired
+    private AnalysisCache analysisCache;
+    
+    @Autowired
+    private EngineScheduler engineScheduler;
+    
+    @Autowired
+    private DepthPolicy depthPolicy;
+    
+    private final ConcurrentHashMap<String, CompletableFuture<UciEngine.SearchResult>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong coalescedSearches = new AtomicLong();
+    
+    // Non-blocking variants for socket threads. Work is queued on the engine scheduler under the given owner
+    // (a user or game) at its priority: hints first, then live move classification, then post-game analysis.
+    // A full queue fails the future with RejectedExecutionException instead of piling up behind a slow engine.
+    // The token ties the work to a game and ply so cancelHints/cancelGame can drop it once it is obsolete.
+    public CompletableFuture<String> getBestMoveAsync(String fen, int depth, String owner, EngineScheduler.Token token) {
+        return engineScheduler.submit(EngineScheduler.Priority.HINT, owner, token, () -> getBestMove(fen, depth));
+    }
+    
+    // Streams the engine's evaluation of the position to the given stream, if any, while it searches
+    public CompletableFuture<MoveAnalysis> analyzeMoveAsync(String fen, String move, EvalStream stream, String owner) {
+        return analyzeMoveAsync(fen, move, stream, owner, null);
+    }
+
+    public CompletableFuture<MoveAnalysis> analyzeMoveAsync(String fen, String move, EvalStream stream, String owner,
+                                                            EngineScheduler.Token token) {
+        return engineScheduler.submit(EngineScheduler.Priority.LIVE, owner, token, () -> analyzeMove(fen, move, stream));
+    }
+    
+    // Hints asked for positions before beforePly; the game has moved past them
+    public int cancelHints(String gameId, int beforePly) {
+        return engineScheduler.cancel(gameId, beforePly, EnumSet.of(EngineScheduler.Priority.HINT));
+    }
+    
+    // Hints, and live move analysis before liveBeforePly, for a game that is over. Post-game analysis is left
+    // to finish.
+    public int cancelGame(String gameId, int liveBeforePly) {
+        return engineScheduler.cancel(gameId, Integer.MAX_VALUE, EnumSet.of(EngineScheduler.Priority.HINT))
+                + engineScheduler.cancel(gameId, liveBeforePly, EnumSet.of(EngineScheduler.Priority.LIVE));
+    }
+    
+    // Live updates are throttled to one per this many milliseconds
+    public EvalStream newEvalStream(EvalStream.Sink sink) {
+        return new EvalStream(sink, evalIntervalMillis);
+    }
+    
+    // Replays the game once to get every ply's position, then searches each position a single time:
+    // a position's score is the best move's score for the ply played from it and, negated, the score
+    // after the previous ply, so N plies cost N+1 searches. Each search is its own background task, so
+    // they spread across the pool and live work can preempt them one position at a time. Only
+    // analysisWindow of the game's positions are queued or searching at once; each finished search queues
+    // the next, so a long game holds a few queue slots rather than one per ply.
+    public CompletableFuture<GameAnalysis> analyzeGameAsync(short[] moves, String startingFen, String owner) {
+        return engineScheduler.submit(EngineScheduler.Priority.BACKGROUND, owner, () -> replay(moves, startingFen))
+                .thenCompose(game -> {
+                    UciEngine.SearchResult[] results = new UciEngine.SearchResult[game.fens.length];
+                    AtomicInteger next = new AtomicInteger();
+                    List<CompletableFuture<Void>> lanes = new ArrayList<>();
+                    for (int i = 0; i < Math.max(1, analysisWindow); i++) {
+                        lanes.add(searchPositions(game, results, next, owner));
+                    }
+                    return CompletableFuture.allOf(lanes.toArray(new CompletableFuture[0]))
+                            .thenApply(done -> summarize(game, results));
+                });
+    }
+    
+    // Searches the game's next unsearched position, then the one after, until none are left. A position the
+    // engine fails on is left unknown; a search the scheduler rejects or lets expire fails the whole analysis
+    // rather than passing for an unknown move, and stops the other lanes from queuing more.
+    private CompletableFuture<Void> searchPositions(ReplayedGame game, UciEngine.SearchResult[] results,
+                                                    AtomicInteger next, String owner) {
+        int index;
+        do {
+            index = next.getAndIncrement();
+        } while (index < game.fens.length && !game.needed[index]);
+        if (index >= game.fens.length) return CompletableFuture.completedFuture(null);
+        
+        int position = index;
+        String fen = game.fens[position];
+        return engineScheduler.submit(EngineScheduler.Priority.BACKGROUND, owner, () -> search(fen, null, limits(analysisDepth), null))
+                .handle((result, error) -> {
+                    if (error == null) return result;
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    if (cause instanceof RejectedExecutionException || cause instanceof TimeoutException) {
+                        next.set(game.fens.length);
+                        throw new CompletionException(cause);
+                    }
+                    System.err.println("Error analyzing position " + fen + ": " + cause.getMessage());
+                    return null;
+                })
+                .thenCompose(result -> {
+                    results[position] = result;
+                    return searchPositions(game, results, next, owner);
+                });
+    }
+    
+    public EngineScheduler.Stats getSchedulerStats() {
+        return engineScheduler.getStats();
+    }
+    
     public String getBestMove(String fen, int depth) {
         try {
             System.out.println("Getting best move for FEN: " + fen);
+            String bookMove = getBookMove(fen);
+            if (bookMove != null) {
+                System.out.println("Book move: " + bookMove);
+                return bookMove;
+            }
+            String tablebaseMove = getTablebaseMove(fen);
+            if (tablebaseMove != null) {
+                System.out.println("Tablebase move: " + tablebaseMove);
+                return tablebaseMove;
+            }
+            if (depth <= inProcessDepth) {
+                return getBestMoveInProcess(fen, depth);
+            }
             // Validate Stockfish path
             File stockfishFile = new File(stockfishPath);
             if (!stockfishFile.exists()) {
                 System.err.println("Stockfish not found at: " + stockfishPath);
-                // Return common opening moves as fallback
-                String[] commonMoves = {"e2e4", "d2d4", "g1f3", "b1c3", "f1c4"};
-                return commonMoves[(int)(Math.random() * commonMoves.length)];
+                return getBestMoveInProcess(fen, depth);
             }
             
-            Process stockfish = new ProcessBuilder(stockfishPath).start();
-            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(stockfish.getOutputStream()));
-            BufferedReader reader = new BufferedReader(new InputStreamReader(stockfish.getInputStream()));
-            
-            // Initialize Stockfish
-            writer.write("uci\n");
-            writer.flush();
-            
-            // Wait for uciok
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (line.equals("uciok")) break;
-            }
-            
-            // Set position
-            writer.write("position fen " + fen + "\n");
-            writer.flush();
-            
-            // Start analysis
-            writer.write("go depth " + hintDepth + "\n");
-            writer.flush();
-            
-            String bestMove = null;
-            while ((line = reader.readLine()) != null) {
-                if (line.startsWith("bestmove")) {
-                    bestMove = line.split(" ")[1];
-                    break;
-                }
-            }
-            
-            writer.write("quit\n");
-            writer.flush();
-            stockfish.waitFor(5, TimeUnit.SECONDS);
-            stockfish.destroyForcibly();
+            String bestMove = search(fen, null, limits(hintDepth), null).getBestMove();
             
             System.out.println("Best move result: " + bestMove);
             return bestMove;
             
+        } catch (CancellationException e) {
+            throw e;
         } catch (Exception e) {
             System.err.println("Error getting best move: " + e.getMessage());
             e.printStackTrace();
-            // Return random fallback move
-            String[] fallbackMoves = {"e2e4", "d2d4", "g1f3", "b1c3"};
-            return fallbackMoves[(int)(Math.random() * fallbackMoves.length)];
+            return getBestMoveInProcess(fen, depth);
+        }
+    }
+    
+    // Highest-weighted book move for the position, or null when it is out of book
+    public String getBookMove(String fen) {
+        if (openingBook.isEmpty()) return null;
+        try {
+            int move = openingBook.bestMove(new ChessEngine(fen));
+            return move == PackedMove.NONE ? null : PackedMove.toUci(move);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error probing opening book: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    // Book moves need no engine: the main line is Excellent, any other book move Good.
+    // Returns null when the position is out of book or the move left it, so the engine decides.
+    private MoveAnalysis analyzeBookMove(String fen, String move) {
+        if (openingBook.isEmpty()) return null;
+        try {
+            List<PolyglotBook.Entry> entries = openingBook.probe(new ChessEngine(fen));
+            for (int i = 0; i < entries.size(); i++) {
+                if (entries.get(i).getUci().startsWith(move)) {
+                    return new MoveAnalysis(move, 0, 0, entries.get(0).getUci(), i == 0 ? "Excellent" : "Good");
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error probing opening book: " + e.getMessage());
+        }
+        return null;
+    }
+    
+    public UciEnginePool.Stats getEnginePoolStats() {
+        return enginePool.getStats();
+    }
+    
+    // Tablebase-perfect move for positions with few enough pieces, or null when not covered
+    public String getTablebaseMove(String fen) {
+        try {
+            int move = tablebase.bestMove(new ChessEngine(fen));
+            return move == PackedMove.NONE ? null : PackedMove.toUci(move);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error probing tablebase: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    // Judges the move by the exact result before and after it: keeping the result is Excellent when it is
+    // also the fastest conversion and Good otherwise; throwing away a win or a draw is a Blunder.
+    // Scores are +-1000 for won and lost positions and 0 for draws, from the mover's side.
+    // Returns null when the position is not covered, so the engine decides.
+    private MoveAnalysis analyzeTablebaseMove(String fen, String move) {
+        try {
+            ChessEngine position = new ChessEngine(fen);
+            int wdlBefore = tablebase.probeWdl(position);
+            if (wdlBefore == SyzygyTablebase.UNKNOWN) return null;
+            int played = PackedMove.fromUci(position, move);
+            int best = tablebase.bestMove(position);
+            if (played == PackedMove.NONE || best == PackedMove.NONE) return null;
+
+            position.makeMove(played);
+            int wdlAfter = tablebase.probeWdl(position);
+            position.unmakeMove();
+            if (wdlAfter == SyzygyTablebase.UNKNOWN) return null;
+            wdlAfter = -wdlAfter;
+
+            String classification;
+            if (tablebaseScore(wdlAfter) < tablebaseScore(wdlBefore)) {
+                classification = "Blunder";
+            } else {
+                classification = played == best ? "Excellent" : "Good";
+            }
+            return new MoveAnalysis(move, tablebaseScore(wdlBefore), tablebaseScore(wdlAfter),
+                    PackedMove.toUci(best), classification);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error probing tablebase: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    // Cursed wins and blessed losses are draws under the fifty-move rule
+    private static int tablebaseScore(int wdl) {
+        return wdl == SyzygyTablebase.WIN ? 1000 : wdl == SyzygyTablebase.LOSS ? -1000 : 0;
+    }
+    
+    // Pure-Java iterative-deepening search (Lazy SMP across engine.threads), bounded by the configured time and node budget
+    public String getBestMoveInProcess(String fen, int depth) {
+        try {
+            LazySmpSearch.Result result = lazySmpSearch.search(new ChessEngine(fen), depth, searchTimeMillis, searchMaxNodes);
+            System.out.println("In-process search: " + result);
+            return result.getBestMoveUci();
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error in in-process search: " + e.getMessage());
+            return null;
         }
     }
     
     public MoveAnalysis analyzeMove(String fen, String move) {
+        return analyzeMove(fen, move, null);
+    }
+    
+    // The stream only carries lines that start with the played move, so its eval and PV are always the played
+    // move's: the root search's while that move leads it, then the searchmoves search that scores it when
+    // another move turned out best. A cached result streams nothing.
+    public MoveAnalysis analyzeMove(String fen, String move, EvalStream stream) {
+        MoveAnalysis bookAnalysis = analyzeBookMove(fen, move);
+        if (bookAnalysis != null) {
+            return bookAnalysis;
+        }
+        MoveAnalysis tablebaseAnalysis = analyzeTablebaseMove(fen, move);
+        if (tablebaseAnalysis != null) {
+            return tablebaseAnalysis;
+        }
         try {
             // Validate Stockfish path
             File stockfishFile = new File(stockfishPath);
@@ -89,89 +325,153 @@ public class ChessEngineService {
                 return new MoveAnalysis(move, 0, 0, null, "Unknown");
             }
             
-            Process stockfish = new ProcessBuilder(stockfishPath).start();
-            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(stockfish.getOutputStream()));
-            BufferedReader reader = new BufferedReader(new InputStreamReader(stockfish.getInputStream()));
-            
-            // Initialize
-            writer.write("uci\n");
-            writer.flush();
-            
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (line.equals("uciok")) break;
-            }
-            
-            // Analyze position before move
-            writer.write("position fen " + fen + "\n");
-            writer.flush();
-            writer.write("go depth " + analysisDepth + "\n");
-            writer.flush();
-            
-            int scoreBefore = 0;
-            String bestMoveBefore = null;
-            
-            while ((line = reader.readLine()) != null) {
-                if (line.startsWith("info") && line.contains("score cp")) {
-                    String[] parts = line.split(" ");
-                    for (int i = 0; i < parts.length - 1; i++) {
-                        if (parts[i].equals("cp")) {
-                            scoreBefore = Integer.parseInt(parts[i + 1]);
-                            break;
-                        }
-                    }
-                }
-                if (line.startsWith("bestmove")) {
-                    bestMoveBefore = line.split(" ")[1];
-                    break;
-                }
-            }
-            
-            // Analyze position after move
-            writer.write("go depth " + analysisDepth + "\n");
-            writer.flush();
-            writer.write("go depth " + analysisDepth + "\n");
-            writer.flush();
-            
-            int scoreAfter = 0;
-            while ((line = reader.readLine()) != null) {
-                if (line.startsWith("info") && line.contains("score cp")) {
-                    String[] parts = line.split(" ");
-                    for (int i = 0; i < parts.length - 1; i++) {
-                        if (parts[i].equals("cp")) {
-                            scoreAfter = -Integer.parseInt(parts[i + 1]); // Flip for opponent
-                            break;
-                        }
-                    }
-                }
-                if (line.startsWith("bestmove")) {
-                    break;
-                }
-            }
-            
-            writer.write("quit\n");
-            writer.flush();
-            stockfish.waitFor(5, TimeUnit.SECONDS);
-            stockfish.destroyForcibly();
+            // Both scores come from the same root at the same depth. When the best move was played its
+            // score is the search score; otherwise a second search restricted to the played move scores it.
+            String played = toFullUci(fen, move);
+            DepthPolicy.Limits limits = limits(analysisDepth);
+            UciEngine.InfoListener playedLine = stream == null ? null : stream.forMove(played);
+            UciEngine.SearchResult best = search(fen, null, limits, playedLine);
+            String bestMoveBefore = best.getBestMove();
+            boolean isBestMove = played.equals(bestMoveBefore);
+            int scoreBefore = best.getScore();
+            int scoreAfter = isBestMove ? scoreBefore : search(fen, played, limits, playedLine).getScore();
+            if (stream != null) stream.finish();
             
             return new MoveAnalysis(move, scoreBefore, scoreAfter, bestMoveBefore, 
-                                  classifyMove(scoreBefore, scoreAfter, move.equals(bestMoveBefore)));
+                                  classifyMove(scoreBefore, scoreAfter, isBestMove), best.getDepth());
             
+        } catch (CancellationException e) {
+            throw e;
         } catch (Exception e) {
             System.err.println("Error analyzing move: " + e.getMessage());
             return new MoveAnalysis(move, 0, 0, null, "Unknown");
         }
     }
     
-    public GameAnalysis analyzeGame(List<String> moves, String startingFen) {
-        List<MoveAnalysis> moveAnalyses = new ArrayList<>();
-        String currentFen = startingFen != null ? startingFen : "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    // The configured depth, lowered while the calling task's priority class is backed up
+    private DepthPolicy.Limits limits(int depth) {
+        return depthPolicy.limits(depth, engineScheduler.getAverageWaitMillis());
+    }
+    
+    // Stockfish search within the limits, optionally restricted to one root move with searchmoves, answered
+    // from the cache when the same search was run at least as deep. Results are cached at the depth the
+    // engine actually reached, so a search cut short under load is redone properly once load drops.
+    // Identical searches already running (same position, restriction and limits) are joined rather than
+    // repeated: players, spectators and the post-game pass often ask for the same position together.
+    private UciEngine.SearchResult search(String fen, String searchMove, DepthPolicy.Limits limits,
+                                          UciEngine.InfoListener listener) throws Exception {
+        UciEngine.SearchResult cached = analysisCache.get(fen, searchMove, limits.getDepth());
+        if (cached != null) return cached;
+        String go = limits.goCommand() + (searchMove == null ? "" : " searchmoves " + searchMove);
+        String key = AnalysisCache.key(fen) + " " + go;
+        while (true) {
+            CompletableFuture<UciEngine.SearchResult> flight = new CompletableFuture<>();
+            CompletableFuture<UciEngine.SearchResult> running = inFlight.putIfAbsent(key, flight);
+            if (running == null) {
+                try {
+                    UciEngine.SearchResult result = runSearch(fen, searchMove, go, listener);
+                    flight.complete(result);
+                    return result;
+                } catch (Exception e) {
+                    flight.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    inFlight.remove(key, flight);
+                }
+            }
+            coalescedSearches.incrementAndGet();
+            try {
+                return running.get();
+            } catch (ExecutionException e) {
+                // A preempted or cancelled leader leaves the search undone: go round again and lead it if nobody else has
+                if (!(e.getCause() instanceof EngineScheduler.PreemptedException || e.getCause() instanceof CancellationException)) {
+                    throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+            }
+        }
+    }
+    
+    // Inside a scheduled task the search registers its engine with the scheduler. A search stopped for
+    // higher-priority work throws PreemptedException so the task is requeued, one stopped because the game
+    // moved on throws CancellationException; neither result is cached.
+    private UciEngine.SearchResult runSearch(String fen, String searchMove, String go,
+                                             UciEngine.InfoListener listener) throws Exception {
+        UciEngine.SearchResult result = enginePool.execute(engine -> {
+            if (!engineScheduler.attach(engine)) return null;
+            try {
+                return engine.search(fen, null, go, searchTimeoutMillis, listener);
+            } finally {
+                engineScheduler.detach();
+            }
+        });
+        engineScheduler.throwIfStopped();
+        analysisCache.put(fen, searchMove, result.getDepth(), result);
+        return result;
+    }
+    
+    // Searches that joined an identical one already running instead of starting their own
+    public long getCoalescedSearches() {
+        return coalescedSearches.get();
+    }
+    
+    // Clients send promotions without the piece letter, which the game plays as a queen;
+    // searchmoves needs the exact UCI move
+    private static String toFullUci(String fen, String move) {
+        ChessEngine position = new ChessEngine(fen);
+        int packed = PackedMove.fromUci(position, move);
+        if (packed == PackedMove.NONE && move.length() == 4) {
+            packed = PackedMove.fromUci(position, move + "q");
+        }
+        if (packed == PackedMove.NONE) {
+            throw new IllegalArgumentException("Illegal move " + move + " in " + fen);
+        }
+        return PackedMove.toUci(packed);
+    }
+    
+    public AnalysisCache.Stats getAnalysisCacheStats() {
+        return analysisCache.getStats();
+    }
+    
+    // Blocking form of analyzeGameAsync for callers off the socket threads
+    public GameAnalysis analyzeGame(short[] moves, String startingFen) {
+        return analyzeGameAsync(moves, startingFen, null).join();
+    }
+    
+    // Every ply's position and played move. Book and tablebase plies are judged here without the engine;
+    // every other ply needs its position and the next one searched.
+    private ReplayedGame replay(short[] moves, String startingFen) {
+        ChessEngine replay = new ChessEngine(startingFen != null ? startingFen : ChessEngine.STARTING_FEN);
+        int plies = moves.length;
+        ReplayedGame game = new ReplayedGame(plies);
+        for (int i = 0; i < plies; i++) {
+            int move = PackedMove.fromShort(moves[i]);
+            game.fens[i] = replay.getFen();
+            game.played[i] = PackedMove.toUci(move);
+            replay.makeMove(move);
+        }
+        game.fens[plies] = replay.getFen();
         
+        boolean engineAvailable = new File(stockfishPath).exists();
+        if (!engineAvailable) {
+            System.err.println("Stockfish not found at: " + stockfishPath);
+        }
+        for (int i = 0; i < plies; i++) {
+            game.known[i] = analyzeBookMove(game.fens[i], game.played[i]);
+            if (game.known[i] == null) game.known[i] = analyzeTablebaseMove(game.fens[i], game.played[i]);
+            if (game.known[i] == null && engineAvailable) game.needed[i] = game.needed[i + 1] = true;
+        }
+        return game;
+    }
+    
+    private GameAnalysis summarize(ReplayedGame game, UciEngine.SearchResult[] results) {
+        int plies = game.played.length;
+        List<MoveAnalysis> moveAnalyses = new ArrayList<>();
         int blunders = 0, mistakes = 0, inaccuracies = 0, excellent = 0, good = 0;
         double totalAccuracy = 0;
         
-        for (String move : moves) {
-            MoveAnalysis analysis = analyzeMove(currentFen, move);
+        for (int i = 0; i < plies; i++) {
+            MoveAnalysis analysis = game.known[i] != null ? game.known[i]
+                    : classifyPly(game.played[i], results[i], results[i + 1]);
             moveAnalyses.add(analysis);
             
             switch (analysis.getClassification()) {
@@ -181,17 +481,25 @@ public class ChessEngineService {
                 case "Excellent": excellent++; break;
                 case "Good": good++; break;
             }
-            
-            // Update FEN for next move (simplified - you'd need proper FEN updating)
-            // currentFen = updateFenWithMove(currentFen, move);
         }
         
-        double accuracy = moves.size() > 0 ? 
-            (double)(excellent * 100 + good * 80 + (moves.size() - blunders - mistakes - inaccuracies) * 60) / (moves.size() * 100) * 100 : 0;
+        double accuracy = plies > 0 ? 
+            (double)(excellent * 100 + good * 80 + (plies - blunders - mistakes - inaccuracies) * 60) / (plies * 100) * 100 : 0;
         
         return new GameAnalysis(moveAnalyses, accuracy, blunders, mistakes, inaccuracies, excellent, good);
     }
     
+    private MoveAnalysis classifyPly(String move, UciEngine.SearchResult before, UciEngine.SearchResult after) {
+        if (before == null || after == null) {
+            return new MoveAnalysis(move, 0, 0, null, "Unknown");
+        }
+        boolean isBestMove = move.equals(before.getBestMove());
+        // When the best move was played both scores describe the same line, so keep them equal
+        int scoreAfter = isBestMove ? before.getScore() : -after.getScore();
+        return new MoveAnalysis(move, before.getScore(), scoreAfter, before.getBestMove(),
+                classifyMove(before.getScore(), scoreAfter, isBestMove), before.getDepth());
+    }
+    
     private String classifyMove(int scoreBefore, int scoreAfter, boolean isBestMove) {
         int scoreDiff = scoreAfter - scoreBefore;
         
@@ -202,6 +510,20 @@ public class ChessEngineService {
         return "Blunder";
     }
     
+    private static class ReplayedGame {
+        private final String[] fens;
+        private final String[] played;
+        private final MoveAnalysis[] known;
+        private final boolean[] needed;
+        
+        ReplayedGame(int plies) {
+            this.fens = new String[plies + 1];
+            this.played = new String[plies];
+            this.known = new MoveAnalysis[plies];
+            this.needed = new boolean[plies + 1];
+        }
+    }
+    
     // Inner classes for analysis results
     public static class MoveAnalysis {
         private String move;
@@ -209,13 +531,20 @@ public class ChessEngineService {
         private int scoreAfter;
         private String bestMove;
         private String classification;
+        // Engine depth behind the scores; 0 when no search was needed (book, tablebase) or possible
+        private int depth;
         
         public MoveAnalysis(String move, int scoreBefore, int scoreAfter, String bestMove, String classification) {
+            this(move, scoreBefore, scoreAfter, bestMove, classification, 0);
+        }
+        
+        public MoveAnalysis(String move, int scoreBefore, int scoreAfter, String bestMove, String classification, int depth) {
             this.move = move;
             this.scoreBefore = scoreBefore;
             this.scoreAfter = scoreAfter;
             this.bestMove = bestMove;
             this.classification = classification;
+            this.depth = depth;
         }
         
         // Getters
@@ -224,6 +553,7 @@ public class ChessEngineService {
         public int getScoreAfter() { return scoreAfter; }
         public String getBestMove() { return bestMove; }
         public String getClassification() { return classification; }
+        public int getDepth() { return depth; }
     }
     
     public static class GameAnalysis {
@@ -0,0 +1,43 @@
+package com.chess.service;
+
+// Trades search depth for throughput as the engine queue backs up. Every stepMillis of average queue wait
+// takes one ply off the configured depth, down to minDepth; once the floor is reached an optional node
+// limit caps each search as well. As waits fall back the configured depth returns on its own.
+public class DepthPolicy {
+
+    private final int minDepth;
+    private final long stepMillis;
+    private final long overloadNodes;
+
+    public DepthPolicy(int minDepth, long stepMillis, long overloadNodes) {
+        this.minDepth = Math.max(1, minDepth);
+        this.stepMillis = stepMillis;
+        this.overloadNodes = overloadNodes;
+    }
+
+    public Limits limits(int depth, double waitMillis) {
+        if (stepMillis <= 0 || depth <= minDepth) return new Limits(depth, 0);
+        int reduced = depth - (int) (waitMillis / stepMillis);
+        if (reduced > minDepth) return new Limits(reduced, 0);
+        // Past the floor: stop shrinking the depth and bound the work per search instead
+        return new Limits(minDepth, reduced < minDepth ? overloadNodes : 0);
+    }
+
+    public static class Limits {
+        private final int depth;
+        private final long nodes;
+
+        Limits(int depth, long nodes) {
+            this.depth = depth;
+            this.nodes = nodes;
+        }
+
+        public int getDepth() { return depth; }
+        public long getNodes() { return nodes; }
+
+        // Stockfish stops at whichever limit it reaches first
+        public String goCommand() {
+            return "go depth " + depth + (nodes > 0 ? " nodes " + nodes : "");
+        }
+    }
+}
@@ -0,0 +1,456 @@
+package com.chess.service;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Orders engine work so live players never wait behind finished games. Tasks run on one worker per pooled
+// engine, highest priority class first; within a class owners take turns, so one user's burst of requests
+// cannot starve another. Each class has its own queue bound, so a backlog of post-game analysis can never
+// crowd out hints. A task still queued when its class deadline passes fails instead of running late.
+// Background tasks are preemptible: when higher-priority work arrives and every worker is busy, one running
+// background search is sent "stop", its partial result is thrown away, and the task goes back to the front
+// of its owner's queue. Tasks can carry a game/ply token, so work the game has moved past can be cancelled.
+public class EngineScheduler implements AutoCloseable {
+
+    // Declaration order is priority order
+    public enum Priority { HINT, LIVE, BACKGROUND }
+
+    public interface Task<T> {
+        T run() throws Exception;
+    }
+
+    // Thrown out of a preempted background task so the scheduler can requeue it
+    public static class PreemptedException extends RuntimeException {
+        public PreemptedException() {
+            super("Preempted by higher-priority engine work");
+        }
+    }
+
+    // Weight of the newest wait in the moving average; a quiet queue brings it back down within a few tasks
+    private static final double WAIT_SMOOTHING = 0.25;
+    private static final long DEFAULT_WAIT_HALF_LIFE_MILLIS = 2000;
+
+    // The game and ply a task was queued for
+    public static class Token {
+        private final String game;
+        private final int ply;
+
+        public Token(String game, int ply) {
+            this.game = game;
+            this.ply = ply;
+        }
+
+        public String getGame() { return game; }
+        public int getPly() { return ply; }
+    }
+
+    private final Map<String, ArrayDeque<Entry<?>>>[] queues;
+    private final long[] deadlineNanos;
+    private final int capacity;
+    private final Thread[] workers;
+    private final Entry<?>[] running;
+    private final ThreadLocal<Entry<?>> current = new ThreadLocal<>();
+    // Tasks waiting per class, each bounded by capacity
+    private final int[] queued = new int[Priority.values().length];
+    private int idle;
+    // Moving average per class of how long tasks sat in the queue: the load signal for adaptive search limits.
+    // Kept apart because background tasks are meant to wait and would otherwise make every search shallower.
+    private final double[] averageWaitMillis = new double[Priority.values().length];
+    // While a class has nothing queued its average halves every half-life, so idle time counts as zero wait
+    // even though no task is dequeued to record it
+    private final long[] idleSince = new long[Priority.values().length];
+    private final double waitHalfLifeNanos;
+    private boolean closed;
+
+    private long submitted;
+    private long completed;
+    private long rejected;
+    private long expired;
+    private long preemptions;
+    private long cancelled;
+
+    @SuppressWarnings("unchecked")
+    public EngineScheduler(int workerCount, int capacity, long hintDeadlineMillis, long liveDeadlineMillis,
+                           long backgroundDeadlineMillis) {
+        this(workerCount, capacity, hintDeadlineMillis, liveDeadlineMillis, backgroundDeadlineMillis,
+                DEFAULT_WAIT_HALF_LIFE_MILLIS);
+    }
+
+    public EngineScheduler(int workerCount, int capacity, long hintDeadlineMillis, long liveDeadlineMillis,
+                           long backgroundDeadlineMillis, long waitHalfLifeMillis) {
+        Priority[] priorities = Priority.values();
+        this.queues = new Map[priorities.length];
+        for (int i = 0; i < priorities.length; i++) {
+            queues[i] = new LinkedHashMap<>();
+        }
+        this.deadlineNanos = new long[]{
+            TimeUnit.MILLISECONDS.toNanos(hintDeadlineMillis),
+            TimeUnit.MILLISECONDS.toNanos(liveDeadlineMillis),
+            TimeUnit.MILLISECONDS.toNanos(backgroundDeadlineMillis)
+        };
+        this.capacity = Math.max(1, capacity);
+        this.waitHalfLifeNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, waitHalfLifeMillis));
+        Arrays.fill(idleSince, System.nanoTime());
+        this.workers = new Thread[Math.max(1, workerCount)];
+        this.running = new Entry<?>[workers.length];
+        for (int i = 0; i < workers.length; i++) {
+            int index = i;
+            workers[i] = new Thread(() -> work(index), "engine-worker-" + (i + 1));
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    public <T> CompletableFuture<T> submit(Priority priority, String owner, Task<T> task) {
+        return submit(priority, owner, null, task);
+    }
+
+    // Queues the task for its owner; fails at once with RejectedExecutionException when its class is full
+    public synchronized <T> CompletableFuture<T> submit(Priority priority, String owner, Token token, Task<T> task) {
+        if (closed || queued[priority.ordinal()] >= capacity) {
+            rejected++;
+            return CompletableFuture.failedFuture(new RejectedExecutionException(
+                    "Engine " + priority + " queue full (" + queued[priority.ordinal()] + " tasks)"));
+        }
+        Entry<T> entry = new Entry<>(priority, owner != null ? owner : "", token, task,
+                System.nanoTime() + deadlineNanos[priority.ordinal()]);
+        enqueue(entry, false);
+        submitted++;
+        if (idle == 0 && priority != Priority.BACKGROUND) {
+            preemptBackground();
+        }
+        notifyAll();
+        return entry.future;
+    }
+
+    private void enqueue(Entry<?> entry, boolean front) {
+        ArrayDeque<Entry<?>> owned = queues[entry.priority.ordinal()].computeIfAbsent(entry.owner, k -> new ArrayDeque<>());
+        entry.queuedAt = System.nanoTime();
+        if (front) {
+            owned.addFirst(entry);
+        } else {
+            owned.addLast(entry);
+        }
+        int priority = entry.priority.ordinal();
+        // The idle spell ends here: fold its decay into the average the coming waits are blended with
+        if (queued[priority] == 0) averageWaitMillis[priority] = averageWait(priority, entry.queuedAt);
+        queued[priority]++;
+    }
+
+    private void dequeued(int priority, long now) {
+        if (--queued[priority] == 0) idleSince[priority] = now;
+    }
+
+    private double averageWait(int priority, long now) {
+        double average = averageWaitMillis[priority];
+        if (queued[priority] > 0) return average;
+        return average * Math.pow(0.5, (now - idleSince[priority]) / waitHalfLifeNanos);
+    }
+
+    // One background search per arriving task, so a burst of hints frees at most as many engines as it needs.
+    // Only tasks holding an engine count: stopping a replay or a task waiting on another's search frees nothing.
+    private void preemptBackground() {
+        for (Entry<?> entry : running) {
+            if (entry != null && entry.priority == Priority.BACKGROUND && entry.engine != null
+                    && !entry.preempted && !entry.cancelled) {
+                entry.preempt();
+                preemptions++;
+                return;
+            }
+        }
+    }
+
+    // Cancels the game's tasks in the given classes that were queued for a ply before beforePly. Queued tasks
+    // fail with CancellationException at once; running ones have their search stopped, so the worker is free
+    // as soon as the engine answers with its partial result, which is discarded.
+    public synchronized int cancel(String game, int beforePly, Set<Priority> classes) {
+        int count = 0;
+        for (Priority priority : classes) {
+            Iterator<ArrayDeque<Entry<?>>> owners = queues[priority.ordinal()].values().iterator();
+            while (owners.hasNext()) {
+                ArrayDeque<Entry<?>> owned = owners.next();
+                Iterator<Entry<?>> entries = owned.iterator();
+                while (entries.hasNext()) {
+                    Entry<?> entry = entries.next();
+                    if (entry.isFor(game, beforePly)) {
+                        entries.remove();
+                        dequeued(priority.ordinal(), System.nanoTime());
+                        entry.future.completeExceptionally(new CancellationException("Engine task no longer needed"));
+                        count++;
+                    }
+                }
+                if (owned.isEmpty()) owners.remove();
+            }
+        }
+        for (Entry<?> entry : running) {
+            if (entry != null && classes.contains(entry.priority) && !entry.cancelled && entry.isFor(game, beforePly)) {
+                entry.cancel();
+                count++;
+            }
+        }
+        cancelled += count;
+        return count;
+    }
+
+    // Highest class first; the owner served moves to the back of its class. Expired tasks are failed on the way.
+    private Entry<?> next() {
+        long now = System.nanoTime();
+        for (int i = 0; i < queues.length; i++) {
+            Map<String, ArrayDeque<Entry<?>>> byOwner = queues[i];
+            Iterator<Map.Entry<String, ArrayDeque<Entry<?>>>> owners = byOwner.entrySet().iterator();
+            while (owners.hasNext()) {
+                Map.Entry<String, ArrayDeque<Entry<?>>> owner = owners.next();
+                ArrayDeque<Entry<?>> owned = owner.getValue();
+                Entry<?> entry;
+                while ((entry = owned.pollFirst()) != null) {
+                    dequeued(i, now);
+                    if (now - entry.deadline <= 0) break;
+                    expired++;
+                    entry.future.completeExceptionally(new TimeoutException("Engine task waited past its deadline"));
+                }
+                owners.remove();
+                if (entry != null) {
+                    if (!owned.isEmpty()) byOwner.put(owner.getKey(), owned);
+                    return entry;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void work(int index) {
+        while (true) {
+            Entry<?> entry = null;
+            synchronized (this) {
+                idle++;
+                try {
+                    while (!closed && (entry = next()) == null) {
+                        wait();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                } finally {
+                    idle--;
+                }
+                if (closed) return;
+                running[index] = entry;
+                double waitMillis = (System.nanoTime() - entry.queuedAt) / 1_000_000.0;
+                int priority = entry.priority.ordinal();
+                averageWaitMillis[priority] += WAIT_SMOOTHING * (waitMillis - averageWaitMillis[priority]);
+            }
+            run(entry);
+            synchronized (this) {
+                running[index] = null;
+            }
+        }
+    }
+
+    private <T> void run(Entry<T> entry) {
+        current.set(entry);
+        try {
+            T result = entry.task.run();
+            synchronized (this) {
+                completed++;
+            }
+            // A task that finished before its cancellation took effect still answers a question nobody asks now
+            if (entry.cancelled) {
+                entry.future.completeExceptionally(new CancellationException("Engine task no longer needed"));
+            } else {
+                entry.future.complete(result);
+            }
+        } catch (PreemptedException e) {
+            if (entry.cancelled) {
+                entry.future.completeExceptionally(new CancellationException("Engine task no longer needed"));
+                return;
+            }
+            synchronized (this) {
+                entry.preempted = false;
+                enqueue(entry, true);
+                notifyAll();
+            }
+        } catch (Throwable e) {
+            entry.future.completeExceptionally(e);
+        } finally {
+            synchronized (this) {
+                entry.engine = null;
+            }
+            current.remove();
+        }
+    }
+
+    // Called by the running task once it holds an engine, so a preemption or cancellation can stop that
+    // engine's search. False when the task was stopped before it started searching. A background task that
+    // gets its engine while live work is waiting yields it at once, since no search was there to preempt.
+    public synchronized boolean attach(UciEngine engine) {
+        Entry<?> entry = current.get();
+        if (entry == null) return true;
+        if (entry.priority == Priority.BACKGROUND && idle == 0 && !entry.preempted
+                && queued[Priority.HINT.ordinal()] + queued[Priority.LIVE.ordinal()] > 0) {
+            entry.preempted = true;
+            preemptions++;
+        }
+        if (entry.preempted || entry.cancelled) return false;
+        entry.engine = engine;
+        return true;
+    }
+
+    // Under the scheduler lock, like attach and every stop, so a stop is only ever sent while the engine is
+    // still this task's: once detached it may already be back in the pool searching for someone else
+    public synchronized void detach() {
+        Entry<?> entry = current.get();
+        if (entry != null) entry.engine = null;
+    }
+
+    // After a search: throws if the calling task's search was cut short, since its result is unusable.
+    // A cancelled task fails with CancellationException; a preempted one is requeued.
+    public void throwIfStopped() {
+        Entry<?> entry = current.get();
+        if (entry == null) return;
+        if (entry.cancelled) throw new CancellationException("Engine task no longer needed");
+        if (entry.preempted) throw new PreemptedException();
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            for (Map<String, ArrayDeque<Entry<?>>> byOwner : queues) {
+                for (ArrayDeque<Entry<?>> owned : byOwner.values()) {
+                    for (Entry<?> entry : owned) {
+                        entry.future.completeExceptionally(new RejectedExecutionException("Engine scheduler closed"));
+                    }
+                }
+                byOwner.clear();
+            }
+            Arrays.fill(queued, 0);
+            notifyAll();
+        }
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+    }
+
+    // Average wait of the calling task's own class; outside a task, that of live analysis
+    public synchronized double getAverageWaitMillis() {
+        Entry<?> entry = current.get();
+        return averageWait((entry != null ? entry.priority : Priority.LIVE).ordinal(), System.nanoTime());
+    }
+
+    public synchronized Stats getStats() {
+        int busy = 0;
+        for (Entry<?> entry : running) {
+            if (entry != null) busy++;
+        }
+        long now = System.nanoTime();
+        double[] averages = new double[averageWaitMillis.length];
+        for (int i = 0; i < averages.length; i++) {
+            averages[i] = averageWait(i, now);
+        }
+        return new Stats(workers.length, busy, queued[0], queued[1], queued[2], averages,
+                submitted, completed, rejected, expired, preemptions, cancelled);
+    }
+
+    private static class Entry<T> {
+        private final Priority priority;
+        private final String owner;
+        private final Token token;
+        private final Task<T> task;
+        private final long deadline;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private long queuedAt;
+        private volatile boolean preempted;
+        private volatile boolean cancelled;
+        // Set between attach and detach; only read and written under the scheduler lock
+        private UciEngine engine;
+
+        Entry(Priority priority, String owner, Token token, Task<T> task, long deadline) {
+            this.priority = priority;
+            this.owner = owner;
+            this.token = token;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        boolean isFor(String game, int beforePly) {
+            return token != null && token.game.equals(game) && token.ply < beforePly;
+        }
+
+        void preempt() {
+            preempted = true;
+            stopSearch();
+        }
+
+        void cancel() {
+            cancelled = true;
+            stopSearch();
+        }
+
+        // Callers hold the scheduler lock
+        private void stopSearch() {
+            UciEngine searching = engine;
+            if (searching != null) searching.stop();
+        }
+    }
+
+    public static class Stats {
+        private final int workers;
+        private final int running;
+        private final int queuedHints;
+        private final int queuedLive;
+        private final int queuedBackground;
+        private final double[] averageWaitMillis;
+        private final long submitted;
+        private final long completed;
+        private final long rejected;
+        private final long expired;
+        private final long preemptions;
+        private final long cancelled;
+
+        Stats(int workers, int running, int queuedHints, int queuedLive, int queuedBackground, double[] averageWaitMillis,
+              long submitted, long completed, long rejected, long expired, long preemptions, long cancelled) {
+            this.workers = workers;
+            this.running = running;
+            this.queuedHints = queuedHints;
+            this.queuedLive = queuedLive;
+            this.queuedBackground = queuedBackground;
+            this.averageWaitMillis = averageWaitMillis;
+            this.submitted = submitted;
+            this.completed = completed;
+            this.rejected = rejected;
+            this.expired = expired;
+            this.preemptions = preemptions;
+            this.cancelled = cancelled;
+        }
+
+        public int getWorkers() { return workers; }
+        public int getRunning() { return running; }
+        public int getQueuedHints() { return queuedHints; }
+        public int getQueuedLive() { return queuedLive; }
+        public int getQueuedBackground() { return queuedBackground; }
+        public double getAverageWaitHintMillis() { return averageWaitMillis[0]; }
+        public double getAverageWaitLiveMillis() { return averageWaitMillis[1]; }
+        public double getAverageWaitBackgroundMillis() { return averageWaitMillis[2]; }
+        public long getSubmitted() { return submitted; }
+        public long getCompleted() { return completed; }
+        public long getRejected() { return rejected; }
+        public long getExpired() { return expired; }
+        public long getPreemptions() { return preemptions; }
+        public long getCancelled() { return cancelled; }
+
+        @Override
+        public String toString() {
+            return String.format("workers %d, running %d, queued %d/%d/%d, wait avg %.1f/%.1f/%.1f ms, submitted %d, completed %d, rejected %d, expired %d, preemptions %d, cancelled %d",
+                    workers, running, queuedHints, queuedLive, queuedBackground,
+                    averageWaitMillis[0], averageWaitMillis[1], averageWaitMillis[2], submitted, completed, rejected, expired, preemptions, cancelled);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.chess.service;
+
+import java.util.concurrent.TimeUnit;
+
+// Turns a search's info lines into live evaluation updates for one client. Stockfish prints many lines per
+// second, so updates are coalesced: at most one goes out per interval, always the latest, and finish()
+// flushes whatever is still pending. Once cancelled nothing more is delivered.
+public class EvalStream implements UciEngine.InfoListener {
+
+    public interface Sink {
+        void send(Update update);
+    }
+
+    private final Sink sink;
+    private final long intervalNanos;
+    private volatile boolean cancelled;
+    private Update pending;
+    private long lastSent;
+
+    public EvalStream(Sink sink, long intervalMillis) {
+        this.sink = sink;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+    }
+
+    @Override
+    public synchronized void onInfo(int depth, int score, String pv) {
+        if (cancelled) return;
+        pending = new Update(depth, score, pv);
+        long now = System.nanoTime();
+        if (lastSent == 0 || now - lastSent >= intervalNanos) {
+            deliver(now);
+        }
+    }
+
+    // Passes on only the lines whose principal variation starts with the given move
+    public UciEngine.InfoListener forMove(String uci) {
+        return (depth, score, pv) -> {
+            if (pv != null && (pv.equals(uci) || pv.startsWith(uci + " "))) onInfo(depth, score, pv);
+        };
+    }
+
+    public synchronized void finish() {
+        if (!cancelled && pending != null) {
+            deliver(System.nanoTime());
+        }
+    }
+
+    private void deliver(long now) {
+        Update update = pending;
+        pending = null;
+        lastSent = now;
+        try {
+            sink.send(update);
+        } catch (RuntimeException e) {
+            System.err.println("Error sending evaluation update: " + e.getMessage());
+        }
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public static class Update {
+        private final int depth;
+        private final int score;
+        private final String pv;
+
+        Update(int depth, int score, String pv) {
+            this.depth = depth;
+            this.score = score;
+            this.pv = pv;
+        }
+
+        public int getDepth() { return depth; }
+        public int getScore() { return score; }
+        public String getPv() { return pv; }
+        // Set instead of a centipawn score when the engine sees a forced mate
+        public Integer getMate() { return UciEngine.mateIn(score); }
+    }
+}
@@ -0,0 +1,227 @@
+package com.chess.service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// One long-lived UCI engine process. Output is read by a daemon thread into a queue so every wait
+// has a timeout: a hung or crashed engine surfaces as an exception instead of blocking a game thread.
+public class UciEngine {
+    // Reported for "score mate N": beyond any centipawn score, nearer mates scoring higher
+    public static final int MATE_SCORE = 100_000;
+
+    private static final String EOF = "\u0000eof";
+
+    private final Process process;
+    private final BufferedWriter writer;
+    private final BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+    private int searches;
+
+    private UciEngine(Process process) {
+        this.process = process;
+        this.writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()));
+        Thread readerThread = new Thread(this::readOutput, "uci-reader-" + process.pid());
+        readerThread.setDaemon(true);
+        readerThread.start();
+    }
+
+    // Starts the process and completes the uci/isready handshake
+    public static UciEngine start(String path, long timeoutMillis) throws IOException, TimeoutException {
+        Process process = new ProcessBuilder(path).redirectErrorStream(true).start();
+        UciEngine engine = new UciEngine(process);
+        try {
+            engine.send("uci");
+            engine.waitFor("uciok", timeoutMillis);
+            engine.ready(timeoutMillis);
+            return engine;
+        } catch (IOException | TimeoutException e) {
+            engine.destroy();
+            throw e;
+        }
+    }
+
+    private void readOutput() {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.offer(line);
+            }
+        } catch (IOException e) {
+            // Stream closed with the process
+        }
+        lines.offer(EOF);
+    }
+
+    public boolean isAlive() {
+        return process.isAlive();
+    }
+
+    public long getPid() {
+        return process.pid();
+    }
+
+    public int getSearches() {
+        return searches;
+    }
+
+    // Clears hash and history from the previous job and checks the engine still answers
+    public void newGame(long timeoutMillis) throws IOException, TimeoutException {
+        send("ucinewgame");
+        ready(timeoutMillis);
+    }
+
+    private void ready(long timeoutMillis) throws IOException, TimeoutException {
+        send("isready");
+        waitFor("readyok", timeoutMillis);
+    }
+
+    // Receives each "info" line that carries a score, as the search deepens
+    public interface InfoListener {
+        void onInfo(int depth, int score, String pv);
+    }
+
+    // Sets the position (FEN plus optional UCI moves) and runs one "go" command to its bestmove
+    public SearchResult search(String fen, String moves, String goCommand, long timeoutMillis)
+            throws IOException, TimeoutException {
+        return search(fen, moves, goCommand, timeoutMillis, null);
+    }
+
+    public SearchResult search(String fen, String moves, String goCommand, long timeoutMillis, InfoListener listener)
+            throws IOException, TimeoutException {
+        send("position fen " + fen + (moves == null || moves.isEmpty() ? "" : " moves " + moves));
+        send(goCommand);
+        searches++;
+
+        int score = 0;
+        int depth = 0;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (true) {
+            String line = nextLine(deadline);
+            if (line.startsWith("info") && line.contains(" score ")) {
+                score = parseScore(line, score);
+                depth = Math.max(depth, parseDepth(line));
+                if (listener != null) {
+                    int pv = line.indexOf(" pv ");
+                    listener.onInfo(parseDepth(line), score, pv < 0 ? "" : line.substring(pv + 4));
+                }
+            } else if (line.startsWith("bestmove")) {
+                String[] parts = line.split(" ");
+                String bestMove = parts.length > 1 && !parts[1].equals("(none)") ? parts[1] : null;
+                return new SearchResult(bestMove, score, depth);
+            }
+        }
+    }
+
+    // "score cp N" or "score mate N" from an info line; anything else keeps the previous score
+    static int parseScore(String line, int previous) {
+        String[] parts = line.split(" ");
+        for (int i = 0; i < parts.length - 2; i++) {
+            if (parts[i].equals("score")) {
+                try {
+                    int value = Integer.parseInt(parts[i + 2]);
+                    if (parts[i + 1].equals("cp")) return value;
+                    if (parts[i + 1].equals("mate")) return value > 0 ? MATE_SCORE - value : -MATE_SCORE - value;
+                } catch (NumberFormatException e) {
+                    return previous;
+                }
+            }
+        }
+        return previous;
+    }
+
+    // Moves to mate for a score parsed from "score mate N", negative when being mated; null for centipawns
+    public static Integer mateIn(int score) {
+        if (Math.abs(score) <= MATE_SCORE - 1000) return null;
+        return score > 0 ? MATE_SCORE - score : -MATE_SCORE - score;
+    }
+
+    static int parseDepth(String line) {
+        String[] parts = line.split(" ");
+        for (int i = 0; i < parts.length - 1; i++) {
+            if (parts[i].equals("depth")) {
+                try {
+                    return Integer.parseInt(parts[i + 1]);
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+
+    // Ends the running search early; the engine still answers with its best move so far
+    public void stop() {
+        try {
+            send("stop");
+        } catch (IOException e) {
+            // Already dead; the search will fail on its own
+        }
+    }
+
+    // Synchronized because stop() comes from another thread while a search is writing commands
+    private synchronized void send(String command) throws IOException {
+        writer.write(command);
+        writer.write('\n');
+        writer.flush();
+    }
+
+    private void waitFor(String expected, long timeoutMillis) throws IOException, TimeoutException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (!nextLine(deadline).equals(expected)) {
+            // Skip id/option/info lines
+        }
+    }
+
+    private String nextLine(long deadline) throws IOException, TimeoutException {
+        try {
+            String line = lines.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            if (line == null) throw new TimeoutException("UCI engine " + process.pid() + " did not answer in time");
+            // Identity check: only the sentinel itself, never a line the engine printed
+            if (line == EOF) throw new IOException("UCI engine " + process.pid() + " exited");
+            return line.trim();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for UCI engine");
+        }
+    }
+
+    // Asks the engine to quit, then makes sure it is gone
+    public void destroy() {
+        try {
+            send("quit");
+            process.waitFor(1, TimeUnit.SECONDS);
+        } catch (IOException e) {
+            // Already dead
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        process.destroyForcibly();
+    }
+
+    public static class SearchResult {
+        private final String bestMove;
+        private final int score;
+        // Deepest completed iteration the engine reported, which a node or time limit can leave short of the request
+        private final int depth;
+
+        SearchResult(String bestMove, int score) {
+            this(bestMove, score, 0);
+        }
+
+        SearchResult(String bestMove, int score, int depth) {
+            this.bestMove = bestMove;
+            this.score = score;
+            this.depth = depth;
+        }
+
+        public String getBestMove() { return bestMove; }
+        public int getScore() { return score; }
+        public int getDepth() { return depth; }
+    }
+}
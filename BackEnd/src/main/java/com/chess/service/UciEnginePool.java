@@ -0,0 +1,173 @@
+package com.chess.service;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bounded pool of long-lived UCI engine processes shared by every game. Processes start on first demand
+// and are then reused: each borrow resets the engine with ucinewgame/isready, which doubles as a health
+// check, and an engine that fails it or errors during a job is killed and replaced by a fresh process.
+public class UciEnginePool implements AutoCloseable {
+    private final String path;
+    private final int size;
+    private final long borrowTimeoutMillis;
+    private final long readyTimeoutMillis;
+    private final BlockingQueue<UciEngine> idle = new LinkedBlockingQueue<>();
+    // One permit per engine the pool may run, idle or borrowed
+    private final Semaphore permits;
+    private volatile boolean closed;
+
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong starts = new AtomicLong();
+    private final AtomicLong restarts = new AtomicLong();
+
+    public UciEnginePool(String path, int size, long borrowTimeoutMillis, long readyTimeoutMillis) {
+        this.path = path;
+        this.size = Math.max(1, size);
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.readyTimeoutMillis = readyTimeoutMillis;
+        this.permits = new Semaphore(this.size, true);
+    }
+
+    public interface Job<T> {
+        T run(UciEngine engine) throws IOException, TimeoutException;
+    }
+
+    // Borrows an engine for the job and returns it, replacing the process if the job failed
+    public <T> T execute(Job<T> job) throws IOException, TimeoutException {
+        UciEngine engine = borrow();
+        boolean healthy = false;
+        try {
+            T result = job.run(engine);
+            healthy = true;
+            return result;
+        } finally {
+            release(engine, healthy);
+        }
+    }
+
+    // Waits up to the borrow timeout for a free slot; the wait is recorded whether or not it succeeds
+    public UciEngine borrow() throws IOException, TimeoutException {
+        if (closed) throw new IOException("UCI engine pool is closed");
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for a UCI engine");
+        }
+        recordWait(System.nanoTime() - start);
+        if (!acquired) {
+            timeouts.incrementAndGet();
+            throw new TimeoutException("No UCI engine free within " + borrowTimeoutMillis + " ms");
+        }
+
+        try {
+            UciEngine engine = idle.poll();
+            if (engine != null) {
+                try {
+                    engine.newGame(readyTimeoutMillis);
+                    return engine;
+                } catch (IOException | TimeoutException e) {
+                    System.err.println("UCI engine " + engine.getPid() + " failed health check, restarting: " + e.getMessage());
+                    engine.destroy();
+                    restarts.incrementAndGet();
+                }
+            }
+            UciEngine started = UciEngine.start(path, readyTimeoutMillis);
+            starts.incrementAndGet();
+            return started;
+        } catch (IOException | TimeoutException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // An unhealthy engine is killed now and its slot refilled with a new process on a later borrow
+    public void release(UciEngine engine, boolean healthy) {
+        if (healthy && engine.isAlive() && !closed) {
+            idle.offer(engine);
+        } else {
+            engine.destroy();
+            if (!healthy) {
+                restarts.incrementAndGet();
+            }
+        }
+        permits.release();
+    }
+
+    private void recordWait(long nanos) {
+        borrows.incrementAndGet();
+        waitNanos.addAndGet(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        UciEngine engine;
+        while ((engine = idle.poll()) != null) {
+            engine.destroy();
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public Stats getStats() {
+        long count = borrows.get();
+        return new Stats(size, idle.size(), size - permits.availablePermits(), count,
+                count == 0 ? 0 : waitNanos.get() / count / 1_000_000.0, maxWaitNanos.get() / 1_000_000.0,
+                timeouts.get(), starts.get(), restarts.get());
+    }
+
+    public static class Stats {
+        private final int size;
+        private final int idle;
+        private final int inUse;
+        private final long borrows;
+        private final double averageWaitMillis;
+        private final double maxWaitMillis;
+        private final long timeouts;
+        private final long starts;
+        private final long restarts;
+
+        Stats(int size, int idle, int inUse, long borrows, double averageWaitMillis, double maxWaitMillis,
+              long timeouts, long starts, long restarts) {
+            this.size = size;
+            this.idle = idle;
+            this.inUse = inUse;
+            this.borrows = borrows;
+            this.averageWaitMillis = averageWaitMillis;
+            this.maxWaitMillis = maxWaitMillis;
+            this.timeouts = timeouts;
+            this.starts = starts;
+            this.restarts = restarts;
+        }
+
+        public int getSize() { return size; }
+        public int getIdle() { return idle; }
+        public int getInUse() { return inUse; }
+        public long getBorrows() { return borrows; }
+        public double getAverageWaitMillis() { return averageWaitMillis; }
+        public double getMaxWaitMillis() { return maxWaitMillis; }
+        public long getTimeouts() { return timeouts; }
+        public long getStarts() { return starts; }
+        public long getRestarts() { return restarts; }
+
+        @Override
+        public String toString() {
+            return String.format("size %d, idle %d, in use %d, borrows %d, wait avg %.2f ms max %.2f ms, timeouts %d, starts %d, restarts %d",
+                    size, idle, inUse, borrows, averageWaitMillis, maxWaitMillis, timeouts, starts, restarts);
+        }
+    }
+}
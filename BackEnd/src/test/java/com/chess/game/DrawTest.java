@@ -0,0 +1,70 @@
+package com.chess.game;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DrawTest {
+
+    @Test
+    void endsTheGameOnTheThirdKnightShuffle() {
+        ChessEngine engine = new ChessEngine();
+        play(engine, "g1f3", "g8f6", "f3g1", "f6g8", "g1f3", "g8f6", "f3g1");
+        assertFalse(engine.isThreefoldRepetition());
+        assertFalse(engine.isGameOver());
+
+        play(engine, "f6g8");
+        assertTrue(engine.isThreefoldRepetition());
+        assertTrue(engine.isGameOver());
+        assertEquals("Draw", engine.getWinner());
+    }
+
+    @Test
+    void ignoresAnEnPassantSquareNoPawnCanUse() {
+        // After 1.e4 the FEN names e3, but no black pawn can take there, so the position is the one
+        // that recurs after each Ng1
+        ChessEngine engine = new ChessEngine();
+        play(engine, "e2e4", "g8f6", "g1f3", "f6g8", "f3g1", "g8f6", "g1f3", "f6g8");
+        assertFalse(engine.isGameOver());
+
+        play(engine, "f3g1");
+        assertTrue(engine.isThreefoldRepetition());
+        assertTrue(engine.isGameOver());
+    }
+
+    @Test
+    void fiftyMoveRuleYieldsToMateOnTheHundredthHalfMove() {
+        ChessEngine mate = new ChessEngine("7k/8/6K1/8/8/8/8/R7 w - - 99 80");
+        play(mate, "a1a8");
+        assertEquals(100, mate.getHalfmoveClock());
+        assertTrue(mate.isGameOver());
+        assertEquals("Player-1(White)", mate.getWinner());
+
+        ChessEngine quiet = new ChessEngine("7k/8/6K1/8/8/8/8/R7 w - - 99 80");
+        play(quiet, "a1b1");
+        assertTrue(quiet.isDraw());
+        assertTrue(quiet.isGameOver());
+        assertEquals("Draw", quiet.getWinner());
+    }
+
+    @Test
+    void detectsInsufficientMaterial() {
+        assertTrue(new ChessEngine("8/8/8/4k3/8/8/8/4KB2 w - - 0 1").isInsufficientMaterial());
+        assertTrue(new ChessEngine("8/8/8/4k3/8/8/8/4KN2 w - - 0 1").isInsufficientMaterial());
+        // c1 and f8 are both dark squares
+        assertTrue(new ChessEngine("5b2/8/8/4k3/8/8/8/2B1K3 w - - 0 1").isInsufficientMaterial());
+
+        assertFalse(new ChessEngine("2b5/8/8/4k3/8/8/8/2B1K3 w - - 0 1").isInsufficientMaterial());
+        assertFalse(new ChessEngine("8/8/8/4k3/8/8/8/3NKN2 w - - 0 1").isInsufficientMaterial());
+        assertFalse(new ChessEngine("8/8/8/4k3/8/8/4P3/4K3 w - - 0 1").isInsufficientMaterial());
+    }
+
+    // Through the game API, so game-over detection runs after every move
+    private static void play(ChessEngine engine, String... moves) {
+        for (String uci : moves) {
+            assertTrue(engine.makeMove(new Move(uci.substring(0, 2), uci.substring(2, 4))), uci);
+        }
+    }
+}
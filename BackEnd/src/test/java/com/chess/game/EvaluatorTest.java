@@ -0,0 +1,64 @@
+package com.chess.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EvaluatorTest {
+
+    @Test
+    void incrementalTermsMatchAFullRescanThroughRandomGames() {
+        SplittableRandom random = new SplittableRandom(14);
+        PawnHashTable pawnTable = new PawnHashTable(1 << 10);
+        for (String fen : new String[]{
+                ChessEngine.STARTING_FEN,
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8"}) {
+            ChessEngine engine = new ChessEngine(fen);
+            int[] moves = new int[MoveGenerator.MAX_MOVES];
+            int played = 0;
+            for (int ply = 0; ply < 200; ply++) {
+                assertMatchesRescan(engine, pawnTable);
+                int count = engine.generateLegalMoves(moves);
+                if (count == 0) break;
+                engine.makeMove(moves[random.nextInt(count)]);
+                played++;
+            }
+            for (int i = 0; i < played; i++) {
+                engine.unmakeMove();
+                assertMatchesRescan(engine, pawnTable);
+            }
+            assertEquals(fen, engine.getFen());
+        }
+        assertTrue(pawnTable.getHitRate() > 0);
+    }
+
+    @Test
+    void scoresPawnStructure() {
+        // Isolated passed pawn on e6 (+60 -15) against doubled, isolated, passed black pawns on a7/a6 (-10 -30 +15)
+        assertEquals(70, Evaluator.pawnStructure(new ChessEngine("4k3/p7/p3P3/8/8/8/8/4K3 w - - 0 1")));
+        assertEquals(0, Evaluator.pawnStructure(new ChessEngine("4k3/8/8/8/8/8/8/4K3 w - - 0 1")));
+        // Symmetric structures cancel out
+        assertEquals(0, Evaluator.pawnStructure(new ChessEngine()));
+    }
+
+    private static void assertMatchesRescan(ChessEngine engine, PawnHashTable pawnTable) {
+        int score = 0;
+        int phase = 0;
+        long pawnKey = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            int piece = engine.pieceOn(sq);
+            if (piece == Piece.EMPTY) continue;
+            score += Evaluator.pieceSquare(piece, sq);
+            phase += Evaluator.phaseWeight(piece);
+            if (Piece.type(piece) == Piece.PAWN) pawnKey ^= Zobrist.piece(piece, sq);
+        }
+        assertEquals(score, engine.pieceSquareScore());
+        assertEquals(phase, engine.phase());
+        assertEquals(pawnKey, engine.getPawnKey());
+        assertEquals(Evaluator.evaluate(engine), Evaluator.evaluate(engine, pawnTable));
+    }
+}
@@ -0,0 +1,60 @@
+package com.chess.game;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FenTest {
+
+    @Test
+    void roundTripsReferencePositions() {
+        for (String fen : new String[]{
+                ChessEngine.STARTING_FEN,
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10"}) {
+            assertEquals(fen, new ChessEngine(fen).getFen());
+        }
+    }
+
+    @Test
+    void tracksCastlingEnPassantAndCountersAcrossMakeAndUnmake() {
+        ChessEngine engine = new ChessEngine();
+        play(engine, "e2e4", "g8f6", "e4e5", "d7d5");
+        assertEquals("rnbqkb1r/ppp1pppp/5n2/3pP3/8/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 3", engine.getFen());
+
+        play(engine, "e1e2");
+        assertEquals("rnbqkb1r/ppp1pppp/5n2/3pP3/8/8/PPPPKPPP/RNBQ1BNR b kq - 1 3", engine.getFen());
+
+        engine.unmakeMove();
+        assertEquals("rnbqkb1r/ppp1pppp/5n2/3pP3/8/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 3", engine.getFen());
+    }
+
+    @Test
+    void cachesUntilThePositionChanges() {
+        ChessEngine engine = new ChessEngine();
+        String fen = engine.getFen();
+        assertSame(fen, engine.getFen());
+
+        play(engine, "g1f3");
+        engine.unmakeMove();
+        assertEquals(fen, engine.getFen());
+        assertEquals(ChessEngine.STARTING_FEN, engine.getStartingFen());
+    }
+
+    @Test
+    void rejectsMalformedFen() {
+        assertThrows(IllegalArgumentException.class, () -> new ChessEngine("8/8/8/8/8/8/8/8 w - - 0 1"));
+        assertThrows(IllegalArgumentException.class, () -> new ChessEngine("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x KQkq -"));
+        assertThrows(IllegalArgumentException.class, () -> new ChessEngine("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w"));
+    }
+
+    private static void play(ChessEngine engine, String... moves) {
+        for (String uci : moves) {
+            engine.makeMove(PackedMove.fromUci(engine, uci));
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.chess.game;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// No trained network is bundled, so these run random weights: what matters here is that the SIMD and
+// scalar kernels agree exactly and that the incremental accumulator always equals a fresh one.
+class NnueTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void simdMatchesScalarBitForBitThroughRandomGames() {
+        assumeTrue(NnueNetwork.isVectorApiAvailable(), "SIMD kernels are only built and tested with -Pvector-api");
+        // 40 hidden units is not a multiple of any vector width, so the scalar tails run too
+        for (int hidden : new int[]{256, 40}) {
+            NnueNetwork scalar = NnueNetwork.random(hidden, 15, false);
+            NnueNetwork simd = scalar.withKernels(true);
+            assertFalse(scalar.isSimd());
+            assertTrue(simd.isSimd());
+
+            SplittableRandom random = new SplittableRandom(hidden);
+            ChessEngine a = new ChessEngine("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+            ChessEngine b = new ChessEngine(a);
+            a.setNnue(scalar);
+            b.setNnue(simd);
+            int[] moves = new int[MoveGenerator.MAX_MOVES];
+            int played = 0;
+            for (int ply = 0; ply < 150; ply++) {
+                assertSameAccumulators(a, b);
+                int count = a.generateLegalMoves(moves);
+                if (count == 0) break;
+                int move = moves[random.nextInt(count)];
+                a.makeMove(move);
+                b.makeMove(move);
+                played++;
+            }
+            for (int i = 0; i < played; i++) {
+                a.unmakeMove();
+                b.unmakeMove();
+                assertSameAccumulators(a, b);
+            }
+        }
+    }
+
+    @Test
+    void loadsTheQuantisedFileLayout() throws IOException {
+        NnueNetwork network = NnueNetwork.random(32, 7, false);
+        int bytes = 2 * (NnueNetwork.INPUTS * 32 + 32 + 64) + 2;
+        ByteBuffer buffer = ByteBuffer.allocate((bytes + 63) / 64 * 64).order(ByteOrder.LITTLE_ENDIAN);
+        for (short w : network.featureWeights) buffer.putShort(w);
+        for (short b : network.featureBias) buffer.putShort(b);
+        for (int w : network.outputWeights) buffer.putShort((short) w);
+        buffer.putShort((short) network.outputBias);
+        Path file = dir.resolve("net.bin");
+        Files.write(file, buffer.array());
+
+        NnueNetwork loaded = NnueNetwork.load(file, true);
+        assertEquals(32, loaded.getHiddenSize());
+        ChessEngine position = new ChessEngine();
+        assertEquals(new NnueAccumulator(network, position).evaluate(Piece.WHITE),
+                new NnueAccumulator(loaded, position).evaluate(Piece.WHITE));
+
+        Files.write(file, new byte[1000]);
+        assertThrows(IOException.class, () -> NnueNetwork.load(file, false));
+    }
+
+    @Test
+    void searchUsesTheNetworkAndDetachesIt() {
+        NnueNetwork network = NnueNetwork.random(64, 3, true);
+        ChessEngine position = new ChessEngine();
+        String fen = position.getFen();
+        Search.Result result = new Search(null, network).search(position, 3, 0, 0);
+        assertNotEquals(PackedMove.NONE, result.getBestMove());
+        assertNull(position.nnue());
+        assertEquals(fen, position.getFen());
+    }
+
+    private static void assertSameAccumulators(ChessEngine a, ChessEngine b) {
+        NnueAccumulator fresh = new NnueAccumulator(a.nnue().network(), a);
+        for (int perspective = Piece.WHITE; perspective <= Piece.BLACK; perspective++) {
+            assertArrayEquals(fresh.values(perspective), a.nnue().values(perspective));
+            assertArrayEquals(a.nnue().values(perspective), b.nnue().values(perspective));
+        }
+        assertEquals(Evaluator.evaluate(a), Evaluator.evaluate(b));
+        assertEquals(fresh.evaluate(a.sideToMove()), Evaluator.evaluate(a));
+    }
+}
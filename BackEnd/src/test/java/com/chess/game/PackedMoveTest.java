@@ -0,0 +1,55 @@
+package com.chess.game;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PackedMoveTest {
+
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    @Test
+    void everyLegalMoveRoundTripsThroughUciAndSan() {
+        for (String fen : new String[]{ChessEngine.STARTING_FEN, KIWIPETE,
+                "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1"}) {
+            ChessEngine position = new ChessEngine(fen);
+            int[] moves = new int[MoveGenerator.MAX_MOVES];
+            int count = position.generateLegalMoves(moves);
+            for (int i = 0; i < count; i++) {
+                assertEquals(moves[i], PackedMove.fromUci(position, PackedMove.toUci(moves[i])));
+                assertEquals(moves[i], PackedMove.fromSan(position, PackedMove.toSan(position, moves[i])));
+                assertEquals(moves[i], PackedMove.fromShort((short) moves[i]));
+            }
+        }
+    }
+
+    @Test
+    void sanCoversCastlingDisambiguationPromotionAndMate() {
+        ChessEngine kiwipete = new ChessEngine(KIWIPETE);
+        assertEquals("O-O", PackedMove.toSan(kiwipete, PackedMove.fromUci(kiwipete, "e1g1")));
+        assertEquals("O-O-O", PackedMove.toSan(kiwipete, PackedMove.fromUci(kiwipete, "e1c1")));
+        assertEquals("Nxf7", PackedMove.toSan(kiwipete, PackedMove.fromUci(kiwipete, "e5f7")));
+        assertEquals("dxe6", PackedMove.toSan(kiwipete, PackedMove.fromUci(kiwipete, "d5e6")));
+
+        ChessEngine rooks = new ChessEngine("4k3/8/8/8/8/8/8/R4RK1 w - - 0 1");
+        assertEquals("Rad1", PackedMove.toSan(rooks, PackedMove.fromUci(rooks, "a1d1")));
+
+        ChessEngine promotion = new ChessEngine("k7/4P3/1K6/8/8/8/8/8 w - - 0 1");
+        assertEquals("e8=Q#", PackedMove.toSan(promotion, PackedMove.fromUci(promotion, "e7e8q")));
+        assertEquals("e8=N", PackedMove.toSan(promotion, PackedMove.fromUci(promotion, "e7e8n")));
+    }
+
+    @Test
+    void historyIsRecordedAsPackedShorts() {
+        ChessEngine engine = new ChessEngine();
+        engine.makeMove(new Move("e2", "e4"));
+        engine.makeMove(new Move("e7", "e5"));
+
+        short[] history = engine.getMoveHistory();
+        assertArrayEquals(new String[]{"e2e4", "e7e5"}, new String[]{
+            PackedMove.toUci(PackedMove.fromShort(history[0])),
+            PackedMove.toUci(PackedMove.fromShort(history[1]))
+        });
+    }
+}
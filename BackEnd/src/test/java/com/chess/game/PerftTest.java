@@ -0,0 +1,79 @@
+package com.chess.game;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Reference counts from the Chess Programming Wiki perft results page.
+// Depth defaults to 4 and can be raised with -Dperft.depth=6 for a full regression run.
+class PerftTest {
+
+    private static final int DEPTH = Integer.getInteger("perft.depth", 4);
+
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void startPool() {
+        pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @AfterAll
+    static void stopPool() {
+        pool.shutdown();
+    }
+
+    static Stream<Arguments> referencePositions() {
+        return Stream.of(
+            Arguments.of("initial", ChessEngine.STARTING_FEN,
+                new long[]{20, 400, 8902, 197281, 4865609, 119060324}),
+            Arguments.of("kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                new long[]{48, 2039, 97862, 4085603, 193690690}),
+            Arguments.of("position 3", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                new long[]{14, 191, 2812, 43238, 674624, 11030083}),
+            Arguments.of("position 4", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                new long[]{6, 264, 9467, 422333, 15833292}),
+            Arguments.of("position 4 mirrored", "r2q1rk1/pP1p2pp/Q4n2/bbp1p3/Np6/1B3NBn/pPPP1PPP/R3K2R b KQ - 0 1",
+                new long[]{6, 264, 9467, 422333, 15833292}),
+            Arguments.of("position 5", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                new long[]{44, 1486, 62379, 2103487, 89941194}),
+            Arguments.of("position 6", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+                new long[]{46, 2079, 89890, 3894594, 164075551})
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("referencePositions")
+    void singleThreaded(String name, String fen, long[] expected) {
+        int depth = Math.min(DEPTH, expected.length);
+        Perft.Result result = Perft.run(fen, depth);
+        System.out.println("perft " + name + " " + result);
+        assertEquals(expected[depth - 1], result.getNodes(), name + " at depth " + depth);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("referencePositions")
+    void parallel(String name, String fen, long[] expected) {
+        int depth = Math.min(DEPTH, expected.length);
+        Perft.Result result = Perft.runParallel(fen, depth, pool);
+        System.out.println("perft parallel(" + pool.getParallelism() + ") " + name + " " + result);
+        assertEquals(expected[depth - 1], result.getNodes(), name + " at depth " + depth);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("referencePositions")
+    void everyDepthUpToTheLimit(String name, String fen, long[] expected) {
+        ChessEngine position = new ChessEngine(fen);
+        long key = position.getZobristKey();
+        for (int depth = 1; depth < Math.min(DEPTH, expected.length); depth++) {
+            assertEquals(expected[depth - 1], Perft.perft(position, depth), name + " at depth " + depth);
+        }
+        assertEquals(key, position.getZobristKey(), "make/unmake must restore the hash");
+    }
+}
@@ -0,0 +1,88 @@
+package com.chess.game;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PolyglotBookTest {
+
+    @TempDir
+    Path dir;
+
+    // Keys given in the Polyglot book format specification
+    @Test
+    void hashesPositionsWithThePublishedKeys() {
+        PolyglotBook hasher = PolyglotBook.empty();
+        ChessEngine engine = new ChessEngine();
+        assertEquals(0x463b96181691fc9cL, hasher.key(engine));
+
+        long[] expected = {0x823c9b50fd114196L, 0x0756b94461c50fb0L, 0x662fafb965db29d4L, 0x22a48b5a8e47ff78L,
+                0x652a607ca3f242c1L, 0x00fdd303c946bdd9L};
+        String[] moves = {"e2e4", "d7d5", "e4e5", "f7f5", "e1e2", "e8f7"};
+        for (int i = 0; i < moves.length; i++) {
+            engine.makeMove(PackedMove.fromUci(engine, moves[i]));
+            assertEquals(expected[i], hasher.key(engine), moves[i]);
+        }
+
+        ChessEngine wing = new ChessEngine();
+        for (String uci : new String[]{"a2a4", "b7b5", "h2h4", "b5b4", "c2c4"}) {
+            wing.makeMove(PackedMove.fromUci(wing, uci));
+        }
+        assertEquals(0x3c8123ea7b067637L, hasher.key(wing));
+        wing.makeMove(PackedMove.fromUci(wing, "b4c3"));
+        wing.makeMove(PackedMove.fromUci(wing, "a1a3"));
+        assertEquals(0x5c3f9b829b279560L, hasher.key(wing));
+    }
+
+    @Test
+    void findsWeightedMovesByBinarySearch() throws IOException {
+        PolyglotBook hasher = PolyglotBook.empty();
+        ChessEngine start = new ChessEngine();
+        ChessEngine castle = new ChessEngine("r3k2r/pppqbppp/2npbn2/4p3/4P3/2NPBN2/PPPQBPPP/R3K2R w KQkq - 0 1");
+        long startKey = hasher.key(start);
+        long castleKey = hasher.key(castle);
+
+        PolyglotBook book = PolyglotBook.open(writeBook(new long[][]{
+            {startKey, polyglotMove(12, 28), 10},   // e2e4
+            {startKey, polyglotMove(11, 27), 20},   // d2d4
+            {castleKey, polyglotMove(4, 7), 5},     // O-O, written as the king taking its rook
+            {startKey ^ 1, polyglotMove(6, 21), 1},
+            {castleKey ^ 1, polyglotMove(1, 18), 1}
+        }));
+
+        List<PolyglotBook.Entry> entries = book.probe(start);
+        assertEquals(2, entries.size());
+        assertEquals("d2d4", entries.get(0).getUci());
+        assertEquals("e2e4", entries.get(1).getUci());
+        assertEquals("e1g1", PackedMove.toUci(book.bestMove(castle)));
+
+        start.makeMove(PackedMove.fromUci(start, "a2a3"));
+        assertEquals(PackedMove.NONE, book.bestMove(start));
+    }
+
+    private Path writeBook(long[][] entries) throws IOException {
+        long[][] sorted = entries.clone();
+        Arrays.sort(sorted, (a, b) -> Long.compareUnsigned(a[0], b[0]));
+        ByteBuffer buffer = ByteBuffer.allocate(sorted.length * 16);
+        for (long[] entry : sorted) {
+            buffer.putLong(entry[0]).putShort((short) entry[1]).putShort((short) entry[2]).putInt(0);
+        }
+        Path file = Files.createTempFile(dir, "book", ".bin");
+        Files.write(file, buffer.array());
+        assertTrue(Files.size(file) % 16 == 0);
+        return file;
+    }
+
+    private static long polyglotMove(int from, int to) {
+        return (from << 6) | to;
+    }
+}
@@ -0,0 +1,88 @@
+package com.chess.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchTest {
+
+    private final Search search = new Search();
+
+    @Test
+    void findsMateInOne() {
+        Search.Result result = search("6k1/5ppp/8/8/8/8/8/4R1K1 w - - 0 1", 3);
+        assertEquals("e1e8", result.getBestMoveUci());
+        assertEquals(1, result.getMateIn());
+    }
+
+    @Test
+    void findsMateInTwo() {
+        // 1. Rd8+ Rxd8 2. Rxd8#
+        Search.Result result = search("2r3k1/5ppp/8/8/8/8/3R1PPP/3R2K1 w - - 0 1", 5);
+        assertEquals("d2d8", result.getBestMoveUci());
+        assertEquals(2, result.getMateIn());
+    }
+
+    @Test
+    void winsHangingMaterial() {
+        Search.Result result = search("rnb1kbnr/pppp1ppp/8/4p1q1/3P4/2N5/PPP1PPPP/R1BQKBNR w KQkq - 0 1", 4);
+        assertEquals("c1g5", result.getBestMoveUci());
+        assertTrue(result.getScore() > 500);
+    }
+
+    @Test
+    void reportsNoMoveWhenMated() {
+        Search.Result result = search("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3", 4);
+        assertNull(result.getBestMoveUci());
+    }
+
+    @Test
+    void respectsNodeBudgetAndRestoresThePosition() {
+        String fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+        ChessEngine position = new ChessEngine(fen);
+        Search.Result result = search.search(position, Search.MAX_PLY, 0, 50_000);
+        assertTrue(result.getBestMove() != PackedMove.NONE);
+        assertTrue(result.getDepth() >= 1);
+        assertEquals(fen, position.getFen());
+    }
+
+    @Test
+    void transpositionTableKeepsResultsAndSavesWorkOnARepeatedSearch() {
+        TranspositionTable table = new TranspositionTable(4);
+        Search withTable = new Search(table);
+        String fen = "2r3k1/5ppp/8/8/8/8/3R1PPP/3R2K1 w - - 0 1";
+
+        Search.Result first = withTable.search(new ChessEngine(fen), 5, 0, 0);
+        Search.Result second = withTable.search(new ChessEngine(fen), 5, 0, 0);
+        assertEquals("d2d8", first.getBestMoveUci());
+        assertEquals(2, second.getMateIn());
+        assertTrue(second.getNodes() < first.getNodes());
+    }
+
+    @Test
+    void lazySmpHelpersAgreeWithTheMainThread() {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            LazySmpSearch smp = new LazySmpSearch(new TranspositionTable(4), executor, 4);
+            String fen = "2r3k1/5ppp/8/8/8/8/3R1PPP/3R2K1 w - - 0 1";
+            ChessEngine position = new ChessEngine(fen);
+
+            LazySmpSearch.Result result = smp.search(position, 5, 0, 0);
+            assertEquals("d2d8", result.getBestMoveUci());
+            assertEquals(2, result.getResult().getMateIn());
+            assertEquals(4, result.getThreads());
+            assertEquals(fen, position.getFen());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Search.Result search(String fen, int depth) {
+        return search.search(new ChessEngine(fen), depth, 0, 0);
+    }
+}
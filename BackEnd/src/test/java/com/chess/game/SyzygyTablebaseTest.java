@@ -0,0 +1,149 @@
+package com.chess.game;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Real tablebase files are gigabytes and not bundled, so these tests check the index tables against the
+// reference sizes and probe hand-built tables: single-value ones for the header parsing, material lookup,
+// color flipping and capture resolution, and small pairs-compressed ones for the Huffman and pair decoding.
+class SyzygyTablebaseTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void indexTablesMatchReferenceSizes() {
+        assertEquals(462, SyzygyTablebase.kingPairCodes());
+        for (int file = 0; file < 4; file++) {
+            assertEquals(6, SyzygyTablebase.leadPawnsSize(1, file));
+        }
+    }
+
+    @Test
+    void probesSingleValueTables() throws IOException {
+        // KQvK: every position with white to move is a win, with black to move a loss
+        Files.write(dir.resolve("KQvK.rtbw"), new byte[]{
+            0x71, (byte) 0xE8, 0x23, 0x5D, 0x01, 0x00, 0x66, 0x55, (byte) 0xEE, 0x00,
+            (byte) 0x80, 4, (byte) 0x80, 0
+        });
+        // DTZ stored for white to move as 5 full moves
+        Files.write(dir.resolve("KQvK.rtbz"), new byte[]{
+            (byte) 0xD7, 0x66, 0x0C, (byte) 0xA5, 0x01, 0x00, 0x06, 0x05, 0x0E, 0x00,
+            (byte) 0x80, 5
+        });
+        SyzygyTablebase tablebase = new SyzygyTablebase(dir.toString());
+        assertEquals(3, tablebase.getMaxPieces());
+
+        assertEquals(SyzygyTablebase.WIN, tablebase.probeWdl(new ChessEngine("7k/8/8/8/8/3Q4/8/K7 w - - 0 1")));
+        assertEquals(SyzygyTablebase.LOSS, tablebase.probeWdl(new ChessEngine("8/7k/8/8/3Q4/8/8/4K3 b - - 0 1")));
+        // Black as the stronger side is looked up in the same table with colors swapped
+        assertEquals(SyzygyTablebase.LOSS, tablebase.probeWdl(new ChessEngine("7K/8/8/8/8/3q4/8/k7 w - - 0 1")));
+        // The queen can be taken, which the table does not know about: the capture search finds the draw
+        assertEquals(SyzygyTablebase.DRAW, tablebase.probeWdl(new ChessEngine("8/8/8/8/8/8/1Q6/k6K b - - 0 1")));
+
+        assertEquals(11, tablebase.probeDtz(new ChessEngine("7k/8/8/8/8/3Q4/8/K7 w - - 0 1")));
+        // Black to move is not stored: a one-ply search over the white replies
+        assertEquals(-12, tablebase.probeDtz(new ChessEngine("8/7k/8/8/3Q4/8/8/4K3 b - - 0 1")));
+
+        // The best move never hangs the queen to the king
+        ChessEngine position = new ChessEngine("8/8/8/8/8/2k5/8/K2Q4 w - - 0 1");
+        int best = tablebase.bestMove(position);
+        assertNotEquals(PackedMove.NONE, best);
+        position.makeMove(best);
+        assertEquals(SyzygyTablebase.LOSS, tablebase.probeWdl(position));
+    }
+
+    @Test
+    void probesPairsCompressedTables() throws IOException {
+        // KQvK with white to move: WIN and DRAW in alternating runs of 1024 positions; black to move is lost
+        ByteBuffer wdl = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+        wdl.putInt(0x5D23E871).put(new byte[]{0x01, 0x00, 0x66, 0x55, (byte) 0xEE, 0x00});
+        putSizes(wdl, 0, 4, 2, 10);
+        wdl.put(new byte[]{(byte) 0x80, 0});
+        putBlock(wdl);
+        Files.write(dir.resolve("KQvK.rtbw"), Arrays.copyOf(wdl.array(), wdl.position()));
+
+        // DTZ for white to move: stored values 0 and 1 in runs of 512, mapped for wins to 7 and 3 full moves
+        ByteBuffer dtz = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+        dtz.putInt(0xA50C66D7).put(new byte[]{0x01, 0x00, 0x06, 0x05, 0x0E, 0x00});
+        putSizes(dtz, 0x02, 0, 1, 9);
+        dtz.put(new byte[]{2, 7, 3, 0, 0, 0});
+        putBlock(dtz);
+        Files.write(dir.resolve("KQvK.rtbz"), Arrays.copyOf(dtz.array(), dtz.position()));
+
+        SyzygyTablebase tablebase = new SyzygyTablebase(dir.toString());
+        // Kb1 Qc5 Kh8 is index 2107 (run 2, stored 0), Kb1 Qc6 Kh8 is 2603 (run 2, stored 1),
+        // Kb1 Qd3 Kh8 is 1177 (run 1)
+        assertEquals(SyzygyTablebase.WIN, tablebase.probeWdl(new ChessEngine("7k/8/8/2Q5/8/8/8/1K6 w - - 0 1")));
+        assertEquals(SyzygyTablebase.WIN, tablebase.probeWdl(new ChessEngine("7k/8/2Q5/8/8/8/8/1K6 w - - 0 1")));
+        assertEquals(SyzygyTablebase.DRAW, tablebase.probeWdl(new ChessEngine("7k/8/8/8/8/3Q4/8/1K6 w - - 0 1")));
+        assertEquals(SyzygyTablebase.LOSS, tablebase.probeWdl(new ChessEngine("7k/8/8/2Q5/8/8/8/1K6 b - - 0 1")));
+        // Mirrored to the a-d files, and with colors swapped, the same index 2107
+        assertEquals(SyzygyTablebase.WIN, tablebase.probeWdl(new ChessEngine("k7/8/8/5Q2/8/8/8/6K1 w - - 0 1")));
+        assertEquals(SyzygyTablebase.WIN, tablebase.probeWdl(new ChessEngine("1k6/8/8/8/2q5/8/8/7K b - - 0 1")));
+
+        assertEquals(15, tablebase.probeDtz(new ChessEngine("7k/8/8/2Q5/8/8/8/1K6 w - - 0 1")));
+        assertEquals(7, tablebase.probeDtz(new ChessEngine("7k/8/2Q5/8/8/8/8/1K6 w - - 0 1")));
+        assertEquals(0, tablebase.probeDtz(new ChessEngine("7k/8/8/8/8/3Q4/8/1K6 w - - 0 1")));
+    }
+
+    @Test
+    void reportsUnknownWhenNotCovered() throws IOException {
+        Files.write(dir.resolve("KRvK.rtbw"), new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        SyzygyTablebase tablebase = new SyzygyTablebase(dir.toString());
+
+        assertEquals(SyzygyTablebase.UNKNOWN, tablebase.probeWdl(new ChessEngine("7k/8/8/8/3R4/8/8/K7 w - - 0 1")));
+        assertEquals(SyzygyTablebase.UNKNOWN, tablebase.probeWdl(new ChessEngine("7k/8/8/8/8/3Q4/8/K7 w - - 0 1")));
+        assertFalse(tablebase.covers(new ChessEngine()));
+        assertEquals(SyzygyTablebase.UNKNOWN, tablebase.probeWdl(new ChessEngine("r3k3/8/8/8/8/8/8/4K3 b q - 0 1")));
+
+        assertTrue(new SyzygyTablebase("").getTableCount() == 0);
+    }
+
+    // Pairs-compressed sizes for a 3-piece table with unique pieces (31332 positions) in one block whose
+    // values alternate between runs of 2^runLog of first and second. Each run is a single one-bit code: a
+    // symbol pairing two copies of a symbol that pairs two copies and so on down to the leaf value.
+    private static void putSizes(ByteBuffer out, int flags, int first, int second, int runLog) {
+        out.put((byte) flags).put((byte) 6).put((byte) 15).put((byte) 0).putInt(1);
+        out.put((byte) 1).put((byte) 1);
+        int symbols = 2 * runLog + 2;
+        out.putShort((short) (symbols - 2)).putShort((short) symbols);
+        putSymbol(out, first, 0xFFF);
+        putSymbol(out, second, 0xFFF);
+        for (int leaf = 0; leaf < 2; leaf++) {
+            int previous = leaf;
+            for (int k = 1; k < runLog; k++) {
+                putSymbol(out, previous, previous);
+                previous = 2 + leaf * (runLog - 1) + k - 1;
+            }
+        }
+        putSymbol(out, runLog, runLog);
+        putSymbol(out, 2 * runLog - 1, 2 * runLog - 1);
+    }
+
+    private static void putSymbol(ByteBuffer out, int left, int right) {
+        out.put((byte) left).put((byte) ((left >>> 8) | (right << 4))).put((byte) (right >>> 4));
+    }
+
+    // Sparse index entry pointing at the start of the block, its length, then the 64-byte block aligned to
+    // 64 bytes; the bits 0101... pick the first and second runs in turn
+    private static void putBlock(ByteBuffer out) {
+        out.putInt(0).putShort((short) 16384).putShort((short) 31331);
+        out.position((out.position() + 0x3F) & ~0x3F);
+        byte[] block = new byte[64];
+        Arrays.fill(block, (byte) 0x55);
+        out.put(block);
+    }
+}
@@ -0,0 +1,75 @@
+package com.chess.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TranspositionTableTest {
+
+    @Test
+    void storesAndProbesPackedEntries() {
+        TranspositionTable table = new TranspositionTable(1);
+        long key = 0x9D39247E33776D41L;
+        int move = PackedMove.encode(12, 28, PackedMove.DOUBLE_PUSH);
+        table.store(key, move, -Search.MATE + 7, 9, TranspositionTable.LOWER);
+
+        long entry = table.probe(key);
+        assertEquals(move, TranspositionTable.move(entry));
+        assertEquals(-Search.MATE + 7, TranspositionTable.score(entry));
+        assertEquals(9, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+
+        // Same slot, different key: a miss, not someone else's entry
+        assertEquals(TranspositionTable.MISS, table.probe(key ^ (table.getSlotCount() << 1)));
+    }
+
+    @Test
+    void keepsTheBestMoveWhenAnUpperBoundOverwritesIt() {
+        TranspositionTable table = new TranspositionTable(1);
+        int move = PackedMove.encode(6, 21, PackedMove.QUIET);
+        table.store(42, move, 30, 4, TranspositionTable.EXACT);
+        table.store(42, PackedMove.NONE, -10, 6, TranspositionTable.UPPER);
+
+        long entry = table.probe(42);
+        assertEquals(move, TranspositionTable.move(entry));
+        assertEquals(6, TranspositionTable.depth(entry));
+    }
+
+    @Test
+    void racingWritersNeverProduceAMismatchedEntry() throws InterruptedException {
+        // A tiny table so every thread keeps overwriting the same slots
+        TranspositionTable table = new TranspositionTable(1);
+        AtomicInteger hits = new AtomicInteger();
+        AtomicInteger corrupt = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            long seed = t;
+            threads[t] = new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(seed);
+                for (int i = 0; i < 200_000; i++) {
+                    long key = random.nextLong() & 0xFFFF_0000_0000_03FFL;
+                    // Every field is derived from the key, so a torn entry would show up as a mismatch
+                    table.store(key, (int) (key >>> 48), (short) (key >>> 48), (int) (key & 0x3F), TranspositionTable.EXACT);
+                    long entry = table.probe(key);
+                    if (entry != TranspositionTable.MISS) {
+                        hits.incrementAndGet();
+                        if (TranspositionTable.move(entry) != (int) (key >>> 48)
+                                || TranspositionTable.score(entry) != (short) (key >>> 48)) {
+                            corrupt.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(hits.get() > 0);
+        assertEquals(0, corrupt.get());
+    }
+}
@@ -0,0 +1,47 @@
+package com.chess.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class AnalysisCacheTest {
+
+    private static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    private static final String E4 = "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1";
+
+    @Test
+    void servesEqualOrDeeperResultsAcrossMoveClocks() {
+        AnalysisCache cache = new AnalysisCache(10);
+        UciEngine.SearchResult deep = new UciEngine.SearchResult("e2e4", 30);
+        cache.put(START, 15, deep);
+
+        assertSame(deep, cache.get("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 4 9", 10));
+        assertSame(deep, cache.get(START, 15));
+        assertNull(cache.get(START, 16));
+
+        // A shallower search does not overwrite the deeper one
+        cache.put(START, 8, new UciEngine.SearchResult("d2d4", 20));
+        assertSame(deep, cache.get(START, 8));
+
+        AnalysisCache.Stats stats = cache.getStats();
+        assertEquals(3, stats.getHits());
+        assertEquals(1, stats.getMisses());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        AnalysisCache cache = new AnalysisCache(2);
+        String third = "8/8/8/8/8/8/8/K1k5 w - - 0 1";
+        cache.put(START, 10, new UciEngine.SearchResult("e2e4", 30));
+        cache.put(E4, 10, new UciEngine.SearchResult("c7c5", -30));
+        cache.get(START, 10);
+        cache.put(third, 10, new UciEngine.SearchResult("a1a2", 0));
+
+        assertNull(cache.get(E4, 10));
+        assertEquals("e2e4", cache.get(START, 10).getBestMove());
+        assertEquals(2, cache.getStats().getSize());
+        assertEquals(1, cache.getStats().getEvictions());
+    }
+}
@@ -0,0 +1,150 @@
+package com.chess.service;
+
+import com.chess.game.ChessEngine;
+import com.chess.game.PackedMove;
+import com.chess.game.PolyglotBook;
+import com.chess.game.SyzygyTablebase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Wired by hand against a scripted UCI engine that thinks for 0.2 s and always answers "bestmove e2e4" with +42
+@DisabledOnOs(OS.WINDOWS)
+class ChessEngineServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private ChessEngineService service;
+    private UciEnginePool pool;
+    private EngineScheduler scheduler;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        String engine = fakeEngine();
+        pool = new UciEnginePool(engine, 2, 1000, 2000);
+        scheduler = new EngineScheduler(2, 100, 10_000, 10_000, 10_000);
+        service = new ChessEngineService();
+        ReflectionTestUtils.setField(service, "stockfishPath", engine);
+        ReflectionTestUtils.setField(service, "analysisDepth", 12);
+        ReflectionTestUtils.setField(service, "analysisWindow", 2);
+        ReflectionTestUtils.setField(service, "searchTimeoutMillis", 2000L);
+        ReflectionTestUtils.setField(service, "openingBook", PolyglotBook.empty());
+        ReflectionTestUtils.setField(service, "tablebase", new SyzygyTablebase(""));
+        ReflectionTestUtils.setField(service, "enginePool", pool);
+        ReflectionTestUtils.setField(service, "analysisCache", new AnalysisCache(100));
+        ReflectionTestUtils.setField(service, "engineScheduler", scheduler);
+        ReflectionTestUtils.setField(service, "depthPolicy", new DepthPolicy(8, 500, 0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.close();
+        pool.close();
+    }
+
+    @Test
+    void analyzesGameWithOneSearchPerPosition() {
+        short[] moves = game("e2e4", "e7e5", "g1f3", "b8c6");
+
+        ChessEngineService.GameAnalysis analysis = service.analyzeGame(moves, null);
+
+        assertEquals(4, analysis.getMoves().size());
+        // e2e4 is the scripted best move; any other ply goes from +42 for the mover to the -42 the next position gives
+        assertEquals("Excellent", analysis.getMoves().get(0).getClassification());
+        assertEquals(42, analysis.getMoves().get(0).getScoreAfter());
+        assertEquals("Mistake", analysis.getMoves().get(1).getClassification());
+        assertEquals(42, analysis.getMoves().get(1).getScoreBefore());
+        assertEquals(-42, analysis.getMoves().get(1).getScoreAfter());
+        assertEquals(5, service.getAnalysisCacheStats().getMisses());
+        assertEquals(5, service.getAnalysisCacheStats().getSize());
+    }
+
+    @Test
+    void analyzesLongGamesThroughASmallBackgroundQueue() {
+        scheduler.close();
+        scheduler = new EngineScheduler(2, 2, 10_000, 10_000, 10_000);
+        ReflectionTestUtils.setField(service, "engineScheduler", scheduler);
+        short[] moves = game("e2e4", "e7e5", "g1f3", "b8c6", "f1c4", "f8c5", "c2c3", "g8f6", "d2d4", "e5d4");
+
+        ChessEngineService.GameAnalysis analysis = service.analyzeGame(moves, null);
+
+        assertEquals(10, analysis.getMoves().size());
+        assertEquals(0, scheduler.getStats().getRejected());
+        assertEquals("Excellent", analysis.getMoves().get(0).getClassification());
+    }
+
+    @Test
+    void concurrentIdenticalSearchesShareOneEngineRun() throws Exception {
+        String fen = ChessEngine.STARTING_FEN;
+        CompletableFuture<ChessEngineService.MoveAnalysis> white = service.analyzeMoveAsync(fen, "e2e4", null, "alice");
+        CompletableFuture<ChessEngineService.MoveAnalysis> spectator = service.analyzeMoveAsync(fen, "e2e4", null, "bob");
+
+        assertEquals("Excellent", white.get(5, TimeUnit.SECONDS).getClassification());
+        assertEquals("Excellent", spectator.get(5, TimeUnit.SECONDS).getClassification());
+        assertEquals(1, service.getEnginePoolStats().getBorrows());
+        assertEquals(1, service.getCoalescedSearches());
+    }
+
+    @Test
+    void gameOverKeepsTheFinalMoveAnalysis() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 2; i++) {
+            scheduler.submit(EngineScheduler.Priority.HINT, "blocker", () -> release.await(5, TimeUnit.SECONDS));
+        }
+        String fen = ChessEngine.STARTING_FEN;
+        CompletableFuture<ChessEngineService.MoveAnalysis> earlier = service.analyzeMoveAsync(fen, "d2d4", null, "alice",
+                new EngineScheduler.Token("game-1", 3));
+        CompletableFuture<ChessEngineService.MoveAnalysis> last = service.analyzeMoveAsync(fen, "e2e4", null, "bob",
+                new EngineScheduler.Token("game-1", 4));
+
+        assertEquals(1, service.cancelGame("game-1", 4));
+        release.countDown();
+
+        assertThrows(CancellationException.class, () -> earlier.get(5, TimeUnit.SECONDS));
+        assertEquals("Excellent", last.get(5, TimeUnit.SECONDS).getClassification());
+    }
+
+    private static short[] game(String... uci) {
+        ChessEngine position = new ChessEngine();
+        short[] moves = new short[uci.length];
+        for (int i = 0; i < uci.length; i++) {
+            int move = PackedMove.fromUci(position, uci[i]);
+            moves[i] = (short) move;
+            position.makeMove(move);
+        }
+        return moves;
+    }
+
+    private String fakeEngine() throws IOException {
+        Path script = dir.resolve("fake-uci.sh");
+        Files.writeString(script, String.join("\n",
+                "#!/bin/sh",
+                "while read -r line; do",
+                "  case \"$line\" in",
+                "    uci) echo 'id name fake'; echo 'uciok';;",
+                "    isready) echo 'readyok';;",
+                "    go*) sleep 0.2; echo 'info depth 1 score cp 42 pv e2e4'; echo 'bestmove e2e4';;",
+                "    quit) exit 0;;",
+                "  esac",
+                "done",
+                ""));
+        script.toFile().setExecutable(true);
+        return script.toString();
+    }
+}
@@ -0,0 +1,26 @@
+package com.chess.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DepthPolicyTest {
+
+    @Test
+    void shedsDepthWithQueueWaitThenCapsNodes() {
+        DepthPolicy policy = new DepthPolicy(8, 500, 200_000);
+
+        assertEquals("go depth 15", policy.limits(15, 0).goCommand());
+        assertEquals("go depth 15", policy.limits(15, 499).goCommand());
+        assertEquals("go depth 12", policy.limits(15, 1600).goCommand());
+        assertEquals("go depth 8", policy.limits(15, 3500).goCommand());
+        assertEquals("go depth 8 nodes 200000", policy.limits(15, 10_000).goCommand());
+        // Requests already at or below the floor are left alone
+        assertEquals("go depth 5", policy.limits(5, 10_000).goCommand());
+    }
+
+    @Test
+    void zeroStepDisablesAdaptation() {
+        assertEquals(15, new DepthPolicy(8, 0, 0).limits(15, 60_000).getDepth());
+    }
+}
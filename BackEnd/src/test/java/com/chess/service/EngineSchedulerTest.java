@@ -0,0 +1,248 @@
+package com.chess.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EngineSchedulerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void runsHigherClassesFirstAndRotatesOwners() throws Exception {
+        try (EngineScheduler scheduler = new EngineScheduler(1, 100, 10_000, 10_000, 10_000)) {
+            CountDownLatch release = new CountDownLatch(1);
+            CompletableFuture<Boolean> blocker = scheduler.submit(EngineScheduler.Priority.LIVE, "blocker", () -> release.await(5, TimeUnit.SECONDS));
+            waitUntilRunning(scheduler);
+
+            List<String> order = new CopyOnWriteArrayList<>();
+            scheduler.submit(EngineScheduler.Priority.BACKGROUND, "game", () -> order.add("background"));
+            scheduler.submit(EngineScheduler.Priority.LIVE, "alice", () -> order.add("alice-1"));
+            scheduler.submit(EngineScheduler.Priority.LIVE, "alice", () -> order.add("alice-2"));
+            scheduler.submit(EngineScheduler.Priority.LIVE, "bob", () -> order.add("bob-1"));
+            CompletableFuture<Boolean> last = scheduler.submit(EngineScheduler.Priority.HINT, "carol", () -> order.add("hint"));
+            release.countDown();
+
+            blocker.get(5, TimeUnit.SECONDS);
+            last.get(5, TimeUnit.SECONDS);
+            waitFor(() -> order.size() == 5);
+            assertEquals(List.of("hint", "alice-1", "bob-1", "alice-2", "background"), order);
+        }
+    }
+
+    @Test
+    void boundsEachClassSeparately() throws Exception {
+        try (EngineScheduler scheduler = new EngineScheduler(1, 2, 10_000, 10_000, 10_000)) {
+            CountDownLatch release = new CountDownLatch(1);
+            scheduler.submit(EngineScheduler.Priority.LIVE, "blocker", () -> release.await(5, TimeUnit.SECONDS));
+            waitUntilRunning(scheduler);
+            scheduler.submit(EngineScheduler.Priority.BACKGROUND, "game-1", () -> "a");
+            scheduler.submit(EngineScheduler.Priority.BACKGROUND, "game-2", () -> "b");
+            CompletableFuture<String> overflow = scheduler.submit(EngineScheduler.Priority.BACKGROUND, "game-3", () -> "c");
+            CompletableFuture<String> hint = scheduler.submit(EngineScheduler.Priority.HINT, "alice", () -> "e2e4");
+            release.countDown();
+
+            ExecutionException error = assertThrows(ExecutionException.class, () -> overflow.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(RejectedExecutionException.class, error.getCause());
+            assertEquals("e2e4", hint.get(5, TimeUnit.SECONDS));
+            assertEquals(1, scheduler.getStats().getRejected());
+        }
+    }
+
+    @Test
+    void measuresQueueWaitPerClass() throws Exception {
+        try (EngineScheduler scheduler = new EngineScheduler(1, 100, 10_000, 10_000, 10_000)) {
+            CountDownLatch release = new CountDownLatch(1);
+            scheduler.submit(EngineScheduler.Priority.LIVE, "blocker", () -> release.await(5, TimeUnit.SECONDS));
+            waitUntilRunning(scheduler);
+            CompletableFuture<Double> background = scheduler.submit(EngineScheduler.Priority.BACKGROUND, "game", scheduler::getAverageWaitMillis);
+            Thread.sleep(200);
+            release.countDown();
+
+            // A long background wait slows background searches only
+            assertTrue(background.get(5, TimeUnit.SECONDS) >= 40);
+            CompletableFuture<Double> hint = scheduler.submit(EngineScheduler.Priority.HINT, "alice", scheduler::getAverageWaitMillis);
+            assertTrue(hint.get(5, TimeUnit.SECONDS) < 40);
+            assertTrue(scheduler.getStats().getAverageWaitLiveMillis() < 40);
+        }
+    }
+
+    @Test
+    void idleTimeRestoresFullDepth() throws Exception {
+        DepthPolicy policy = new DepthPolicy(8, 100, 0);
+        try (EngineScheduler scheduler = new EngineScheduler(1, 100, 10_000, 10_000, 10_000, 50)) {
+            CountDownLatch release = new CountDownLatch(1);
+            scheduler.submit(EngineScheduler.Priority.LIVE, "blocker", () -> release.await(5, TimeUnit.SECONDS));
+            waitUntilRunning(scheduler);
+            List<CompletableFuture<Integer>> burst = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                burst.add(scheduler.submit(EngineScheduler.Priority.LIVE, "game" + i,
+                        () -> policy.limits(15, scheduler.getAverageWaitMillis()).getDepth()));
+            }
+            Thread.sleep(400);
+            release.countDown();
+            assertTrue(burst.get(3).get(5, TimeUnit.SECONDS) < 15);
+
+            // Nothing dequeued while idle, yet the average has decayed by the next task
+            Thread.sleep(500);
+            CompletableFuture<Integer> next = scheduler.submit(EngineScheduler.Priority.LIVE, "game",
+                    () -> policy.limits(15, scheduler.getAverageWaitMillis()).getDepth());
+            assertEquals(15, next.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void dropsTasksThatWaitPastTheirDeadline() throws Exception {
+        try (EngineScheduler scheduler = new EngineScheduler(1, 100, 1, 10_000, 10_000)) {
+            CountDownLatch release = new CountDownLatch(1);
+            scheduler.submit(EngineScheduler.Priority.LIVE, "blocker", () -> release.await(5, TimeUnit.SECONDS));
+            waitUntilRunning(scheduler);
+            CompletableFuture<String> hint = scheduler.submit(EngineScheduler.Priority.HINT, "alice", () -> "e2e4");
+            Thread.sleep(20);
+            release.countDown();
+
+            ExecutionException error = assertThrows(ExecutionException.class, () -> hint.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(TimeoutException.class, error.getCause());
+            assertEquals(1, scheduler.getStats().getExpired());
+        }
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void stopsBackgroundSearchForHigherPriorityWork() throws Exception {
+        UciEngine engine = startFakeEngine();
+
+        try (EngineScheduler scheduler = new EngineScheduler(1, 100, 10_000, 10_000, 10_000)) {
+            AtomicInteger attempts = new AtomicInteger();
+            List<String> finished = new CopyOnWriteArrayList<>();
+            CompletableFuture<String> background = scheduler.submit(EngineScheduler.Priority.BACKGROUND, "game", () -> {
+                String go = attempts.incrementAndGet() == 1 ? "go infinite" : "go depth 9";
+                if (!scheduler.attach(engine)) throw new EngineScheduler.PreemptedException();
+                UciEngine.SearchResult result;
+                try {
+                    result = engine.search("8/8/8/8/8/8/8/K1k5 w - - 0 1", null, go, 5000);
+                } finally {
+                    scheduler.detach();
+                }
+                scheduler.throwIfStopped();
+                finished.add("background");
+                return result.getBestMove();
+            });
+            waitUntilRunning(scheduler);
+            CompletableFuture<Boolean> hint = scheduler.submit(EngineScheduler.Priority.HINT, "alice", () -> finished.add("hint"));
+
+            assertEquals("d2d4", background.get(5, TimeUnit.SECONDS));
+            assertTrue(hint.get(5, TimeUnit.SECONDS));
+            assertEquals(List.of("hint", "background"), finished);
+            assertEquals(2, attempts.get());
+            assertEquals(1, scheduler.getStats().getPreemptions());
+        } finally {
+            engine.destroy();
+        }
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void cancelsQueuedAndRunningWorkTheGameHasMovedPast() throws Exception {
+        UciEngine engine = startFakeEngine();
+
+        try (EngineScheduler scheduler = new EngineScheduler(1, 100, 10_000, 10_000, 10_000)) {
+            CompletableFuture<String> running = scheduler.submit(EngineScheduler.Priority.HINT, "alice",
+                    new EngineScheduler.Token("game-1", 3), () -> {
+                if (!scheduler.attach(engine)) throw new CancellationException();
+                UciEngine.SearchResult result;
+                try {
+                    result = engine.search("8/8/8/8/8/8/8/K1k5 w - - 0 1", null, "go infinite", 5000);
+                } finally {
+                    scheduler.detach();
+                }
+                scheduler.throwIfStopped();
+                return result.getBestMove();
+            });
+            waitUntilRunning(scheduler);
+            CompletableFuture<String> queued = scheduler.submit(EngineScheduler.Priority.HINT, "alice",
+                    new EngineScheduler.Token("game-1", 4), () -> "e2e4");
+            CompletableFuture<String> otherGame = scheduler.submit(EngineScheduler.Priority.HINT, "bob",
+                    new EngineScheduler.Token("game-2", 4), () -> "d2d4");
+
+            assertEquals(2, scheduler.cancel("game-1", 5, EnumSet.of(EngineScheduler.Priority.HINT)));
+
+            // The running search only ends because the cancellation sent "stop"
+            assertThrows(CancellationException.class, () -> running.get(5, TimeUnit.SECONDS));
+            assertThrows(CancellationException.class, () -> queued.get(5, TimeUnit.SECONDS));
+            assertEquals("d2d4", otherGame.get(5, TimeUnit.SECONDS));
+            assertEquals(2, scheduler.getStats().getCancelled());
+        } finally {
+            engine.destroy();
+        }
+    }
+
+    @Test
+    void onlyPreemptsBackgroundTasksThatHoldAnEngine() throws Exception {
+        try (EngineScheduler scheduler = new EngineScheduler(1, 100, 10_000, 10_000, 10_000)) {
+            CountDownLatch release = new CountDownLatch(1);
+            CompletableFuture<Boolean> replay = scheduler.submit(EngineScheduler.Priority.BACKGROUND, "game", () -> release.await(5, TimeUnit.SECONDS));
+            waitUntilRunning(scheduler);
+            CompletableFuture<String> hint = scheduler.submit(EngineScheduler.Priority.HINT, "alice", () -> "e2e4");
+            assertEquals(0, scheduler.getStats().getPreemptions());
+            release.countDown();
+
+            assertTrue(replay.get(5, TimeUnit.SECONDS));
+            assertEquals("e2e4", hint.get(5, TimeUnit.SECONDS));
+            assertEquals(0, scheduler.getStats().getPreemptions());
+        }
+    }
+
+    private UciEngine startFakeEngine() throws Exception {
+        Path script = dir.resolve("fake-uci.sh");
+        // "go infinite" only ends on "stop"; "go depth" answers at once
+        Files.writeString(script, String.join("\n",
+                "#!/bin/sh",
+                "while read -r line; do",
+                "  case \"$line\" in",
+                "    uci) echo 'uciok';;",
+                "    isready) echo 'readyok';;",
+                "    'go infinite') echo 'info depth 1 score cp 5 pv e2e4';;",
+                "    go*) echo 'info depth 9 score cp 20 pv d2d4'; echo 'bestmove d2d4';;",
+                "    stop) echo 'bestmove e2e4';;",
+                "    quit) exit 0;;",
+                "  esac",
+                "done",
+                ""));
+        script.toFile().setExecutable(true);
+        return UciEngine.start(script.toString(), 2000);
+    }
+
+    private static void waitUntilRunning(EngineScheduler scheduler) throws InterruptedException {
+        waitFor(() -> scheduler.getStats().getRunning() == 1);
+    }
+
+    private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+}
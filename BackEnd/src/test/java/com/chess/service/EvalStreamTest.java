@@ -0,0 +1,52 @@
+package com.chess.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EvalStreamTest {
+
+    @Test
+    void coalescesUpdatesWithinTheIntervalAndStopsWhenCancelled() {
+        List<EvalStream.Update> sent = new ArrayList<>();
+        EvalStream stream = new EvalStream(sent::add, 60_000);
+
+        stream.onInfo(1, 20, "e2e4");
+        stream.onInfo(2, 35, "e2e4 e7e5");
+        stream.onInfo(3, 28, "d2d4 d7d5");
+        assertEquals(1, sent.size());
+
+        // Only the latest pending update goes out when the search ends
+        stream.finish();
+        assertEquals(2, sent.size());
+        assertEquals(3, sent.get(1).getDepth());
+        assertEquals("d2d4 d7d5", sent.get(1).getPv());
+
+        stream.onInfo(4, 30, "d2d4");
+        stream.cancel();
+        stream.finish();
+        assertEquals(2, sent.size());
+    }
+
+    @Test
+    void forMovePassesOnlyThePlayedMovesLines() {
+        List<EvalStream.Update> sent = new ArrayList<>();
+        EvalStream stream = new EvalStream(sent::add, 0);
+        UciEngine.InfoListener played = stream.forMove("e7e8q");
+
+        played.onInfo(1, 20, "e7e8q");
+        played.onInfo(2, 900, "e7e8r e8e7");
+        played.onInfo(3, 35, "e7e8q e8e7 d1d2");
+        assertEquals(2, sent.size());
+        assertEquals("e7e8q e8e7 d1d2", sent.get(1).getPv());
+    }
+
+    @Test
+    void readsDepthFromInfoLines() {
+        assertEquals(18, UciEngine.parseDepth("info depth 18 seldepth 24 multipv 1 score cp 31 nodes 1 pv e2e4"));
+        assertEquals(0, UciEngine.parseDepth("info string NNUE evaluation enabled"));
+    }
+}
@@ -0,0 +1,106 @@
+package com.chess.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Runs against a tiny shell script that speaks just enough UCI, so no Stockfish binary is needed
+@DisabledOnOs(OS.WINDOWS)
+class UciEnginePoolTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void reusesOneProcessAcrossJobs() throws Exception {
+        try (UciEnginePool pool = new UciEnginePool(fakeEngine(), 1, 1000, 2000)) {
+            long first = pool.execute(UciEngine::getPid);
+            UciEngine.SearchResult result = pool.execute(engine -> engine.search("8/8/8/8/8/8/8/K1k5 w - - 0 1", null, "go depth 1", 2000));
+            long second = pool.execute(UciEngine::getPid);
+
+            assertEquals(first, second);
+            assertEquals("e2e4", result.getBestMove());
+            assertEquals(42, result.getScore());
+            assertEquals(1, result.getDepth());
+            UciEnginePool.Stats stats = pool.getStats();
+            assertEquals(3, stats.getBorrows());
+            assertEquals(1, stats.getStarts());
+            assertEquals(0, stats.getRestarts());
+            assertEquals(1, stats.getIdle());
+        }
+    }
+
+    @Test
+    void restartsCrashedAndFailedEngines() throws Exception {
+        try (UciEnginePool pool = new UciEnginePool(fakeEngine(), 1, 1000, 2000)) {
+            long first = pool.execute(UciEngine::getPid);
+            // Dies while idle: the health check on the next borrow notices and starts a new process
+            ProcessHandle.of(first).ifPresent(ProcessHandle::destroyForcibly);
+            long second = pool.execute(UciEngine::getPid);
+            assertNotEquals(first, second);
+
+            // A job that fails gets its engine replaced too
+            assertThrows(IOException.class, () -> pool.execute(engine -> {
+                throw new IOException("lost sync");
+            }));
+            long third = pool.execute(UciEngine::getPid);
+            assertNotEquals(second, third);
+            assertEquals(2, pool.getStats().getRestarts());
+            assertEquals(3, pool.getStats().getStarts());
+        }
+    }
+
+    @Test
+    void boundsConcurrentEnginesAndTimesOutWaiting() throws Exception {
+        try (UciEnginePool pool = new UciEnginePool(fakeEngine(), 1, 100, 2000)) {
+            UciEngine engine = pool.borrow();
+            assertThrows(TimeoutException.class, pool::borrow);
+            pool.release(engine, true);
+
+            UciEnginePool.Stats stats = pool.getStats();
+            assertEquals(1, stats.getTimeouts());
+            assertEquals(0, stats.getInUse());
+            assertEquals(true, stats.getMaxWaitMillis() >= 100);
+        }
+    }
+
+    @Test
+    void parsesCentipawnAndMateScores() {
+        assertEquals(-35, UciEngine.parseScore("info depth 12 seldepth 15 score cp -35 nodes 1000 pv e2e4", 0));
+        assertEquals(UciEngine.MATE_SCORE - 3, UciEngine.parseScore("info depth 20 score mate 3 pv d1h5", 0));
+        assertEquals(-UciEngine.MATE_SCORE + 2, UciEngine.parseScore("info depth 20 score mate -2", 0));
+        assertEquals(17, UciEngine.parseScore("info string hello", 17));
+
+        assertEquals(3, UciEngine.mateIn(UciEngine.parseScore("info depth 20 score mate 3 pv d1h5", 0)));
+        assertEquals(-2, UciEngine.mateIn(UciEngine.parseScore("info depth 20 score mate -2", 0)));
+        assertNull(UciEngine.mateIn(-35));
+    }
+
+    private String fakeEngine() throws IOException {
+        Path script = dir.resolve("fake-uci.sh");
+        Files.writeString(script, String.join("\n",
+                "#!/bin/sh",
+                "while read -r line; do",
+                "  case \"$line\" in",
+                "    uci) echo 'id name fake'; echo 'uciok';;",
+                "    isready) echo 'readyok';;",
+                "    go*) echo 'info depth 1 score cp 42 pv e2e4'; echo 'bestmove e2e4';;",
+                "    quit) exit 0;;",
+                "  esac",
+                "done",
+                ""));
+        script.toFile().setExecutable(true);
+        return script.toString();
+    }
+}
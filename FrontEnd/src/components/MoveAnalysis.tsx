@@ -7,6 +7,24 @@ interface MoveAnalysisData {
     scoreDiff: number;
 }
 
+// Either evaluation (centipawns) or mate (moves to mate, negative when being mated) is set
+interface EvalUpdateData {
+    move: string;
+    depth: number;
+    evaluation?: number;
+    mate?: number;
+    pv: string;
+}
+
+const formatEval = (update: EvalUpdateData) => {
+    if (update.mate !== undefined) return `${update.mate < 0 ? '-' : ''}M${Math.abs(update.mate)}`;
+    const evaluation = update.evaluation ?? 0;
+    return `${evaluation > 0 ? '+' : ''}${evaluation}`;
+};
+
+const isFavorable = (update: EvalUpdateData) =>
+    update.mate !== undefined ? update.mate > 0 : (update.evaluation ?? 0) >= 0;
+
 interface GameAnalysisData {
     accuracy: number;
     blunders: number;
@@ -28,13 +46,22 @@ interface MoveAnalysisProps {
 export const MoveAnalysis: React.FC<MoveAnalysisProps> = ({ socket, isGameActive, setGameAnalysis }) => {
     const [lastMoveAnalysis, setLastMoveAnalysis] = useState<MoveAnalysisData | null>(null);
     const [showAnalysis, setShowAnalysis] = useState(false);
+    const [liveEval, setLiveEval] = useState<EvalUpdateData | null>(null);
 
     useEffect(() => {
         if (!socket) return;
 
         const handleMessage = (event: MessageEvent) => {
             const data = JSON.parse(event.data);
+            if (data.type === 'eval_update') {
+                setLiveEval(data.payload);
+            }
+            if (data.type === 'move') {
+                // A new move makes any running evaluation stale; the server stops streaming it too
+                setLiveEval(null);
+            }
             if (data.type === 'move_analysis') {
+                setLiveEval(null);
                 setLastMoveAnalysis(data.payload);
                 setShowAnalysis(true);
                 setTimeout(() => setShowAnalysis(false), 5000);
@@ -72,6 +99,19 @@ export const MoveAnalysis: React.FC<MoveAnalysisProps> = ({ socket, isGameActive
 
     return (
         <>
+            {/* Engine evaluation while the last move is still being analyzed */}
+            {!showAnalysis && liveEval && isGameActive && (
+                <div className="fixed top-4 right-4 bg-slate-800 rounded-lg border border-slate-700 shadow-2xl p-4 w-80">
+                    <div className="flex items-center justify-between">
+                        <span className="text-slate-300">Analyzing <span className="font-mono text-emerald-400">{liveEval.move}</span></span>
+                        <span className="text-slate-400 text-sm">depth {liveEval.depth}</span>
+                    </div>
+                    <div className="flex items-center justify-between mt-2">
+                        <span className={`font-semibold ${isFavorable(liveEval) ? 'text-green-400' : 'text-red-400'}`}>{formatEval(liveEval)}</span>
+                        <span className="font-mono text-slate-400 text-sm truncate ml-4">{liveEval.pv.split(' ').slice(0, 5).join(' ')}</span>
+                    </div>
+                </div>
+            )}
             {/* Live Move Analysis */}
             {showAnalysis && lastMoveAnalysis && isGameActive && (
                 <div className="fixed top-4 right-4 bg-slate-800 rounded-lg border border-slate-700 shadow-2xl p-4 w-80 animate-slide-in-right">